@@ -0,0 +1,80 @@
+package net.enabify.chatJP;
+
+/**
+ * ベンチマークで使うチャットの例文
+ * 実際のサーバーで多い、ローマ字・日本語・英語・URLやメンションを含む発言を混ぜています。
+ */
+final class ChatCorpus {
+
+    /** ローマ字の発言（日本語化の対象） */
+    static final String[] ROMAJI = {
+            "konnnitiha",
+            "kyouhaiitenkidesune",
+            "otsukaresamadesita",
+            "oremoikuwa",
+            "dokoniiruno?",
+            "daiyahoritai",
+            "netherniikou",
+            "tetsudaouka?",
+            "chottomattete",
+            "arigatou!",
+            "sumimasen,okuremasita",
+            "asitahananjikaraasobu?",
+            "kokonoie,kakkoiidesune",
+            "zonbiniyararetaaa",
+            "mainkurafutohatanosii",
+            "gomen,ochimasu",
+            "shoutainijoushitekudasai",
+            "tanomuwa",
+            "iinee",
+            "jikkenshitemiyou",
+    };
+
+    /** 日本語化しない発言（日本語・英語・短い発言） */
+    static final String[] OTHER = {
+            "こんにちは",
+            "今日はいい天気ですね",
+            "hello everyone",
+            "GG",
+            "w",
+            "lol",
+            "afk",
+            "Let's go to the nether",
+            "よろしくお願いします",
+            "OK",
+    };
+
+    /** NGワードを含みやすい発言 */
+    static final String[] MODERATION = {
+            "discord.gg/abcdef kitene",
+            "https://example.com/page?id=1 miteyo",
+            "@everyone ibentohajimaruyo",
+            "<@!123456789> kotchikite",
+            "ﾊﾞｶじゃないの",
+            "ば.かって言うな",
+            "ｂａｄｗｏｒｄ desu",
+            "futsuunohatsugen",
+            "普通の発言です",
+            "@here",
+    };
+
+    /** NGワードの単語リストの例 */
+    static final String[] WORDS = {
+            "バカ", "アホ", "badword", "spam", "scam", "しね", "きえろ", "ゴミ", "カス", "noob",
+    };
+
+    private ChatCorpus() {
+    }
+
+    /**
+     * 全ての発言を返す
+     * @return 発言
+     */
+    static String[] all() {
+        String[] all = new String[ROMAJI.length + OTHER.length + MODERATION.length];
+        System.arraycopy(ROMAJI, 0, all, 0, ROMAJI.length);
+        System.arraycopy(OTHER, 0, all, ROMAJI.length, OTHER.length);
+        System.arraycopy(MODERATION, 0, all, ROMAJI.length + OTHER.length, MODERATION.length);
+        return all;
+    }
+}
@@ -0,0 +1,101 @@
+package net.enabify.chatJP;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GoogleIMEの応答の解析と、変換の通信処理のベンチマーク
+ * 通信先はローカルのスタブサーバーに差し替えるので、外部のネットワークには接続しません。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IMEConverterBenchmark {
+
+    // GoogleIMEの実際の応答と同じ形式の例
+    private static final String[] RESPONSES = {
+            "[[\"こんにちは\",[\"こんにちは\",\"今日は\",\"コンニチハ\"]]]",
+            "[[\"きょうは\",[\"今日は\",\"きょうは\",\"京は\"]],[\"いい\",[\"いい\",\"良い\",\"イイ\"]],"
+                    + "[\"てんきですね\",[\"天気ですね\",\"転機ですね\"]]]",
+            "[[\"おつかれさまでした\",[\"お疲れ様でした\",\"おつかれさまでした\"]]]",
+            "[[\"あした\",[\"明日\",\"あした\"]],[\"はなんじから\",[\"は何時から\",\"は難事から\"]],"
+                    + "[\"あそぶ\",[\"遊ぶ\",\"あそぶ\"]],[\"？\",[\"？\",\"?\"]]]",
+    };
+
+    private HttpServer server;
+    private String[] kana;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        // 受け取った文字列を、そのまま第1候補として返すスタブサーバー
+        // （Nagleアルゴリズムによる応答の遅れが計測に混ざらないようにする）
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/transliterate", IMEConverterBenchmark::handle);
+        server.start();
+
+        IMEConverter.setGoogleIMEUrl("http://127.0.0.1:" + server.getAddress().getPort()
+                + "/transliterate?langpair=ja-Hira%7Cja&text=");
+        IMEConverter.configureCache(0, 0L);
+
+        kana = new String[ChatCorpus.ROMAJI.length];
+        for (int i = 0; i < kana.length; i++) {
+            kana[i] = Japanizer.toKana(ChatCorpus.ROMAJI[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        IMEConverter.setGoogleIMEUrl(null);
+        server.stop(0);
+    }
+
+    @Benchmark
+    public String parseGoogleIMEResult() {
+        index = (index + 1) % RESPONSES.length;
+        return IMEConverter.parseGoogleIMEResult(RESPONSES[index]);
+    }
+
+    @Benchmark
+    public String convByGoogleIME() {
+        index = (index + 1) % kana.length;
+        return IMEConverter.convByGoogleIME(kana[index]);
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        int start = query.indexOf("text=");
+        String text = start == -1 ? "" : URLDecoder.decode(query.substring(start + 5), StandardCharsets.UTF_8);
+
+        byte[] body = ("[[\"" + text + "\",[\"" + text + "\"]]]").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/javascript; charset=UTF-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package net.enabify.chatJP;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ローマ字からかなへの変換と、日本語化の要否判定のベンチマーク
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KanaConverterBenchmark {
+
+    private final String[] romaji = ChatCorpus.ROMAJI;
+    private final String[] all = ChatCorpus.all();
+    private int index;
+
+    @Benchmark
+    public String conv() {
+        index = (index + 1) % romaji.length;
+        return KanaConverter.conv(romaji[index]);
+    }
+
+    @Benchmark
+    public String toKana() {
+        index = (index + 1) % romaji.length;
+        return Japanizer.toKana(romaji[index]);
+    }
+
+    @Benchmark
+    public boolean isNeedToJapanize() {
+        index = (index + 1) % all.length;
+        return Japanizer.isNeedToJapanize(all[index]);
+    }
+}
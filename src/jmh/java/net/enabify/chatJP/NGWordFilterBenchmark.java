@@ -0,0 +1,65 @@
+package net.enabify.chatJP;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NGワードの伏字処理のベンチマーク
+ * 単語リストの大きさを変えて、照合時間が単語数によらないことを確認します。
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NGWordFilterBenchmark {
+
+    // ChatJPの初期設定と同じルール
+    private static final String[] RULES = {
+            "<@!*&*[0-9]+>",
+            "@here",
+            "@everyone",
+            "@",
+            "discord\\.gg",
+            "discord\\.com/invite",
+            "https?:\\/\\/[^\\s]+",
+    };
+
+    @Param({"0", "10", "10000"})
+    public int words;
+
+    private final String[] all = ChatCorpus.all();
+    private NGWordFilter filter;
+    private int index;
+
+    @Setup
+    public void setup() {
+        List<String> list = new ArrayList<>(words);
+        for (int i = 0; i < words; i++) {
+            // 例文の単語に、番号付きの架空の単語を加えて数を増やす
+            list.add(i < ChatCorpus.WORDS.length ? ChatCorpus.WORDS[i] : "ngword" + i);
+        }
+        filter = new NGWordFilter(Arrays.asList(RULES), list, null);
+    }
+
+    @Benchmark
+    public String mask() {
+        index = (index + 1) % all.length;
+        return filter.mask(all[index]);
+    }
+}
@@ -0,0 +1,129 @@
+package net.enabify.chatJP;
+
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Ablyから受信したメッセージを、1tickごとにまとめて配信するクラス
+ * 受信したメッセージはロックのないキューに入れるだけで、1つの繰り返しタスクが
+ * 1tickに1回キューを取り出し、チャンネルごとにまとめて配信します。
+ * 1tickに配信する件数には上限があり、残りは次のtickに回します。
+ * メッセージは受信時に1回だけComponentに変換し、チャンネルのAudienceにまとめて送信します。
+ * Foliaでは、各プレイヤーへの送信はそのプレイヤーのいるリージョンのスレッドで行います。
+ */
+public class AblyInbox {
+
+    private final ChatJP plugin;
+    private final PlatformScheduler scheduler;
+    private final int maxPerTick;
+
+    // Ablyのスレッドから追加され、配信タスクから取り出される
+    private final ConcurrentLinkedQueue<Incoming> queue = new ConcurrentLinkedQueue<>();
+
+    private PlatformScheduler.Task task;
+
+    /**
+     * コンストラクタ
+     * @param plugin プラグイン
+     * @param scheduler 配信に使うスケジューラー
+     * @param maxPerTick 1tickに配信するメッセージの最大件数
+     */
+    public AblyInbox(ChatJP plugin, PlatformScheduler scheduler, int maxPerTick) {
+        this.plugin = plugin;
+        this.scheduler = scheduler;
+        this.maxPerTick = Math.max(1, maxPerTick);
+    }
+
+    /**
+     * 配信を開始する
+     */
+    public synchronized void start() {
+        if (task != null) {
+            return;
+        }
+        task = scheduler.runRepeating(this::drain, 1L);
+    }
+
+    /**
+     * 配信を停止する（配信されていないメッセージは破棄する）
+     */
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        queue.clear();
+    }
+
+    /**
+     * 受信したメッセージを配信キューに入れる
+     * @param channelId チャンネルID
+     * @param message 表示するメッセージ
+     */
+    public void offer(String channelId, Component message) {
+        ChatMetrics.Counter.ABLY_RECEIVED.increment();
+        queue.add(new Incoming(channelId, message));
+    }
+
+    /**
+     * 配信を待っているメッセージがあるか
+     * @return ある場合true
+     */
+    public boolean hasPending() {
+        return !queue.isEmpty();
+    }
+
+    // キューからメッセージを取り出し、チャンネルごとにまとめて配信する（Foliaではグローバルリージョンで実行）
+    private void drain() {
+        if (queue.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<Component>> batches = new LinkedHashMap<>();
+        Incoming incoming;
+        long now = System.nanoTime();
+        for (int i = 0; i < maxPerTick && (incoming = queue.poll()) != null; i++) {
+            // 受信してから配信するまでの時間を記録する
+            ChatMetrics.Stage.DELIVERY.record(now - incoming.receivedAt);
+            batches.computeIfAbsent(incoming.channelId, c -> new ArrayList<>()).add(incoming.message);
+        }
+
+        for (Map.Entry<String, List<Component>> batch : batches.entrySet()) {
+            deliver(batch.getKey(), batch.getValue());
+        }
+    }
+
+    // 1つのチャンネルのメッセージを、該当するプレイヤーとコンソールに送信する
+    private void deliver(String channelId, List<Component> messages) {
+        Audience audience;
+        if (channelId.equals("global")) {
+            // 全体チャット（サーバーのAudienceには、コンソールも含まれる）
+            audience = Bukkit.getServer();
+        } else {
+            // グループチャット
+            audience = Audience.audience(plugin.getGroupMembers().audience(channelId), Bukkit.getConsoleSender());
+        }
+
+        // Paperではこのまま、Foliaではリージョンごとに並列に送信される
+        scheduler.sendMessages(audience, messages);
+    }
+
+    // 受信したメッセージと、受信したチャンネル
+    private static final class Incoming {
+        final String channelId;
+        final Component message;
+        final long receivedAt = System.nanoTime();
+
+        Incoming(String channelId, Component message) {
+            this.channelId = channelId;
+            this.message = message;
+        }
+    }
+}
@@ -5,26 +5,51 @@ import io.ably.lib.realtime.Channel;
 import io.ably.lib.types.AblyException;
 import io.ably.lib.types.ClientOptions;
 import io.ably.lib.types.Message;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.Bukkit;
-import org.bukkit.ChatColor;
-import org.bukkit.entity.Player;
-import org.json.JSONObject;
 
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 public class AblyManager {
     private final ChatJP plugin;
     private final Logger logger;
-    private AblyRealtime ably;
+    private volatile AblyRealtime ably;
     private final String apiKey;
-    private final Set<String> subscribedChannels = new HashSet<>();
+    // 接続スレッド・メインスレッド・Ablyのスレッドから操作される
+    private final Set<String> subscribedChannels = ConcurrentHashMap.newKeySet();
+    private final AblyPublisher publisher;
+    private final AblyInbox inbox;
+    private final ChatEnvelope.Format wireFormat;
 
     public AblyManager(ChatJP plugin, String apiKey) {
+        this(plugin, apiKey, 1000, 20L, 50, AblyPublisher.OverflowPolicy.DROP_OLDEST, 100,
+                ChatEnvelope.Format.BINARY);
+    }
+
+    /**
+     * コンストラクタ
+     * @param plugin プラグイン
+     * @param apiKey AblyのAPIキー
+     * @param publishQueueSize 送信キューの最大長
+     * @param publishFlushIntervalMillis 送信をまとめる間隔（ミリ秒）
+     * @param publishMaxBatch 1回の送信にまとめる最大件数
+     * @param publishOverflow 送信キューが一杯のときの動作
+     * @param receiveMaxPerTick 受信したメッセージを1tickに配信する最大件数
+     * @param wireFormat 送信する形式
+     */
+    public AblyManager(ChatJP plugin, String apiKey, int publishQueueSize, long publishFlushIntervalMillis,
+                       int publishMaxBatch, AblyPublisher.OverflowPolicy publishOverflow, int receiveMaxPerTick,
+                       ChatEnvelope.Format wireFormat) {
         this.plugin = plugin;
         this.logger = plugin.getLogger();
         this.apiKey = apiKey;
+        this.publisher = new AblyPublisher(() -> ably, logger, publishQueueSize,
+                publishFlushIntervalMillis, publishMaxBatch, publishOverflow);
+        this.inbox = new AblyInbox(plugin, plugin.getPlatformScheduler(), receiveMaxPerTick);
+        this.wireFormat = wireFormat;
     }
 
     /**
@@ -36,6 +61,9 @@ public class AblyManager {
             logger.severe("Ably API キーが設定されていません。接続を中止します。");
             return;
         }
+
+        // 受信したメッセージの配信を開始（メインスレッドから呼び出す）
+        inbox.start();
         
         // バックグラウンドスレッドで接続を実行
         Thread connectionThread = new Thread(() -> {
@@ -43,11 +71,15 @@ public class AblyManager {
                 ClientOptions options = new ClientOptions();
                 options.key = apiKey;
                 ably = new AblyRealtime(options);
+                publisher.start();
                 
                 logger.info("Ablyへの接続を開始しました");
                 
-                // グローバルチャンネルを購読
+                // グローバルチャンネルと、メンバーがオンラインのグループチャンネルを購読
                 subscribeToChannel("global");
+                for (String groupId : plugin.getGroupMembers().getGroups()) {
+                    subscribeToGroup(groupId);
+                }
                 
             } catch (AblyException e) {
                 logger.severe("Ablyの接続に失敗しました: " + e.getMessage());
@@ -62,7 +94,12 @@ public class AblyManager {
      * Ablyから切断
      */
     public void disconnect() {
+        inbox.stop();
+
         if (ably != null) {
+            // 送信待ちのメッセージを送ってから切断する
+            publisher.shutdown(2000L);
+
             try {
                 // 接続状態を確認してから切断
                 if (ably.connection != null) {
@@ -92,7 +129,8 @@ public class AblyManager {
      * @param channelId チャンネルID
      */
     public void subscribeToChannel(String channelId) {
-        if (ably == null) {
+        AblyRealtime client = ably;
+        if (client == null) {
             logger.warning("Ablyが初期化されていません");
             return;
         }
@@ -100,14 +138,14 @@ public class AblyManager {
         // チャンネルIDにnamespaceを付与
         String namespacedChannelId = addNamespace(channelId);
 
-        // 既に購読済みの場合はスキップ
-        if (subscribedChannels.contains(namespacedChannelId)) {
+        // 既に購読済みの場合はスキップ（確認と登録を同時に行い、重複して購読しないようにする）
+        if (!subscribedChannels.add(namespacedChannelId)) {
             logger.fine("チャンネル「" + namespacedChannelId + "」は既に購読済みです");
             return;
         }
 
         try {
-            Channel channel = ably.channels.get(namespacedChannelId);
+            Channel channel = client.channels.get(namespacedChannelId);
             channel.subscribe(message -> {
                 // メッセージ処理をバックグラウンドスレッドで実行
                 try {
@@ -117,9 +155,9 @@ public class AblyManager {
                     e.printStackTrace();
                 }
             });
-            subscribedChannels.add(namespacedChannelId);
             logger.info("チャンネル「" + namespacedChannelId + "」を購読しました");
         } catch (AblyException e) {
+            subscribedChannels.remove(namespacedChannelId);
             logger.severe("チャンネル「" + namespacedChannelId + "」の購読に失敗しました: " + e.getMessage());
             e.printStackTrace();
         }
@@ -140,7 +178,8 @@ public class AblyManager {
      * @param channelId チャンネルID
      */
     public void unsubscribeFromChannel(String channelId) {
-        if (ably == null) {
+        AblyRealtime client = ably;
+        if (client == null) {
             logger.warning("Ablyが初期化されていません");
             return;
         }
@@ -148,7 +187,7 @@ public class AblyManager {
         // チャンネルIDにnamespaceを付与
         String namespacedChannelId = addNamespace(channelId);
         
-        Channel channel = ably.channels.get(namespacedChannelId);
+        Channel channel = client.channels.get(namespacedChannelId);
         channel.unsubscribe();
         subscribedChannels.remove(namespacedChannelId);
         logger.info("チャンネル「" + namespacedChannelId + "」の購読を中止しました");
@@ -161,24 +200,15 @@ public class AblyManager {
      */
     private void handleIncomingMessage(String channelId, Message message) {
         try {
-            // メッセージデータを取得
-            Object data = message.data;
+            // メッセージデータを読み込む（バイナリ形式、または以前のバージョンのJSON形式）
+            ChatEnvelope envelope = ChatEnvelope.decode(message.data);
             
-            // データがJsonObjectかStringかチェック
-            JSONObject json;
-            if (data instanceof String) {
-                json = new JSONObject((String) data);
-            } else {
-                // JsonObjectやその他の型の場合、toString()で文字列に変換
-                json = new JSONObject(data.toString());
-            }
-            
-            String playerName = json.getString("playerName");
-            String text = json.getString("message");
+            String playerName = envelope.getPlayerName();
+            String text = envelope.getMessage();
             
             // このサーバーのプレイヤーからのメッセージかチェック
             // 同じメッセージが重複しないように、外部からのメッセージのみ表示
-            String serverId = json.optString("senderId", "");
+            String serverId = envelope.getSenderId();
             String currentServerId = getServerId();
             
             if (serverId.equals(currentServerId)) {
@@ -186,60 +216,24 @@ public class AblyManager {
                 //logger.info("自サーバーからのメッセージを無視しました: " + text);
                 return;
             }
+
+            // 他サーバーでのGoogleIMEの変換結果をキャッシュに登録し、同じ文章を変換し直さないようにする
+            shareConversion(envelope);
             
-            // チャンネルに応じてフォーマットを変更
-            String formattedMessage;
+            // チャンネルに応じてフォーマットを変更（受信者ごとではなく、ここで1回だけComponentを作る）
+            Component body = Component.text("{" + playerName + "} " + text, NamedTextColor.WHITE);
+            Component formattedMessage;
             if (channelId.equals("global")) {
-                formattedMessage = ChatColor.WHITE + "{" + playerName + "} " + text;
+                formattedMessage = body;
             } else {
-                formattedMessage = ChatColor.GOLD + "[グループ | " + channelId + "] " +
-                        ChatColor.WHITE + "{" + playerName + "} " + text;
+                formattedMessage = Component.text()
+                        .append(Component.text("[グループ | " + channelId + "] ", NamedTextColor.GOLD))
+                        .append(body)
+                        .build();
             }
             
-            // メインスレッドで実行するようスケジュール
-            try {
-                Bukkit.getScheduler().scheduleSyncDelayedTask(plugin, () -> {
-                    // 該当するプレイヤーにメッセージを送信
-                    if (channelId.equals("global")) {
-                        // 全体チャット
-                        for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-                            onlinePlayer.sendMessage(formattedMessage);
-                        }
-                    } else {
-                        // グループチャット
-                        for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-                            String playerGroup = plugin.getPlayerGroup(onlinePlayer.getUniqueId());
-                            if (channelId.equals(playerGroup)) {
-                                onlinePlayer.sendMessage(formattedMessage);
-                            }
-                        }
-                    }
-                    
-                    // コンソールに表示
-                    logger.info(formattedMessage);
-                });
-            } catch (UnsupportedOperationException e) {
-                // Foliaなどで非同期コンテキストからのスケジューリングがサポートされていない場合
-                //logger.warning("Foliaサーバーで実行中です。メッセージの同期遅延が発生する可能性があります。");
-                // 該当するプレイヤーにメッセージを送信
-                if (channelId.equals("global")) {
-                    // 全体チャット
-                    for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-                        onlinePlayer.sendMessage(formattedMessage);
-                    }
-                } else {
-                    // グループチャット
-                    for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-                        String playerGroup = plugin.getPlayerGroup(onlinePlayer.getUniqueId());
-                        if (channelId.equals(playerGroup)) {
-                            onlinePlayer.sendMessage(formattedMessage);
-                        }
-                    }
-                }
-                
-                // コンソールに表示
-                logger.info(formattedMessage);
-            }
+            // 配信キューに入れる（1tickごとにまとめて配信される）
+            inbox.offer(channelId, formattedMessage);
             
         } catch (Exception e) {
             logger.warning("Ablyからのメッセージ処理に失敗しました: " + e.getMessage());
@@ -247,6 +241,22 @@ public class AblyManager {
         }
     }
 
+    /**
+     * 受信したメッセージに含まれる変換結果を、IME変換のキャッシュに登録する
+     * @param envelope 受信したメッセージ
+     */
+    private void shareConversion(ChatEnvelope envelope) {
+        if (plugin.getJapanizeType() != JapanizeType.GOOGLE_IME
+                || envelope.getEngine() != JapanizeType.GOOGLE_IME) {
+            return;
+        }
+        String kana = envelope.getKana();
+        String kanji = envelope.getKanji();
+        if (!kana.isEmpty() && !kanji.isEmpty()) {
+            IMEConverter.getCache().put(kana, kanji);
+        }
+    }
+
     /**
      * Ablyにメッセージを送信
      * @param channelId チャンネルID
@@ -254,32 +264,28 @@ public class AblyManager {
      * @param message メッセージ
      */
     public void sendMessage(String channelId, String playerName, String message) {
-        if (ably == null) {
-            logger.warning("Ablyが初期化されていません");
-            return;
-        }
+        sendMessage(channelId, playerName, message, null);
+    }
 
+    /**
+     * Ablyにメッセージを、日本語化した結果と一緒に送信
+     * 受信したサーバーは変換結果をキャッシュに登録するので、同じ文章を変換し直さずに済む。
+     * @param channelId チャンネルID
+     * @param playerName プレイヤー名
+     * @param message メッセージ
+     * @param translation 日本語化した結果、nullの場合は含めない
+     */
+    public void sendMessage(String channelId, String playerName, String message, Translation translation) {
         // チャンネルIDにnamespaceを付与
         String namespacedChannelId = addNamespace(channelId);
 
-        try {
-            Channel channel = ably.channels.get(namespacedChannelId);
-            
-            // JSON形式でメッセージを作成
-            JSONObject json = new JSONObject();
-            json.put("playerName", playerName);
-            json.put("message", message);
-            json.put("senderId", getServerId());
-            json.put("timestamp", System.currentTimeMillis());
-            
-            channel.publish("chat", json.toString());
+        // 設定された形式でメッセージを作成
+        ChatEnvelope envelope = new ChatEnvelope(getServerId(), playerName, message, System.currentTimeMillis(),
+                translation);
 
-            //logger.fine("Ablyにメッセージを送信しました: " + json.toString());
-            //logger.info("Ablyにメッセージを送信しました: チャンネル " + namespacedChannelId + ", プレイヤー " + playerName + ", メッセージ " + message);
-            
-        } catch (AblyException e) {
-            logger.severe("Ablyへのメッセージ送信に失敗しました: " + e.getMessage());
-            e.printStackTrace();
+        // 送信キューに入れる（接続中でなければ、再接続後に送信される）
+        if (!publisher.publish(namespacedChannelId, new Message("chat", envelope.encode(wireFormat)))) {
+            logger.fine("Ablyの送信キューが一杯のため、メッセージを破棄しました");
         }
     }
 
@@ -298,7 +304,8 @@ public class AblyManager {
      * @return 接続されている場合true
      */
     public boolean isConnected() {
-        return ably != null && ably.connection.state == io.ably.lib.realtime.ConnectionState.connected;
+        AblyRealtime client = ably;
+        return client != null && client.connection.state == io.ably.lib.realtime.ConnectionState.connected;
     }
 
     /**
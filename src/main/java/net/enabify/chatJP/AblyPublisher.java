@@ -0,0 +1,302 @@
+package net.enabify.chatJP;
+
+import io.ably.lib.realtime.AblyRealtime;
+import io.ably.lib.realtime.CompletionListener;
+import io.ably.lib.realtime.ConnectionState;
+import io.ably.lib.types.AblyException;
+import io.ably.lib.types.ErrorInfo;
+import io.ably.lib.types.Message;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Ablyへの送信を、専用のスレッドでまとめて行うクラス
+ * 送信するメッセージは上限付きのキューに入れるだけなので、チャットのスレッドを止めません。
+ * 送信スレッドは一定間隔ごとにキューを取り出し、チャンネルごとに1回の呼び出しで送信します。
+ * 接続が切れている間はメッセージを保持し、再接続後に送信します。
+ */
+public class AblyPublisher {
+
+    /**
+     * キューが一杯のときの動作
+     */
+    public enum OverflowPolicy {
+
+        /** 最も古いメッセージを捨てる */
+        DROP_OLDEST("drop-oldest"),
+
+        /** 新しいメッセージを捨てる */
+        DROP_NEWEST("drop-newest");
+
+        private final String id;
+
+        OverflowPolicy(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String toString() {
+            return id;
+        }
+
+        /**
+         * 文字列から動作を取得する
+         * @param id 文字列
+         * @param def 該当しない場合の既定値
+         * @return 動作
+         */
+        public static OverflowPolicy fromID(String id, OverflowPolicy def) {
+            if (id == null) return def;
+            for (OverflowPolicy policy : values()) {
+                if (policy.id.equalsIgnoreCase(id)) {
+                    return policy;
+                }
+            }
+            return def;
+        }
+    }
+
+    // 送信に失敗したメッセージを再送する回数の上限
+    private static final int MAX_ATTEMPTS = 3;
+
+    // 接続を待つ間隔（ミリ秒）
+    private static final long RECONNECT_WAIT_MILLIS = 500L;
+
+    private final Supplier<AblyRealtime> client;
+    private final Logger logger;
+    private final int capacity;
+    private final long flushIntervalMillis;
+    private final int maxBatch;
+    private final OverflowPolicy overflow;
+
+    private final ArrayBlockingQueue<Outgoing> queue;
+    // 送信に失敗し、再送を待つメッセージ（Ablyのスレッドから追加される）
+    private final ConcurrentLinkedQueue<Outgoing> retry = new ConcurrentLinkedQueue<>();
+    // 送信スレッドが保持している、送信前のメッセージ
+    private final ArrayDeque<Outgoing> pending = new ArrayDeque<>();
+
+    private volatile boolean running;
+    private Thread worker;
+
+    /**
+     * コンストラクタ
+     * @param client 送信に使うAblyのクライアント（未接続の場合はnullを返す）
+     * @param logger ロガー
+     * @param capacity キューの最大長
+     * @param flushIntervalMillis 送信をまとめる間隔（ミリ秒）
+     * @param maxBatch 1回の送信にまとめる最大件数
+     * @param overflow キューが一杯のときの動作
+     */
+    public AblyPublisher(Supplier<AblyRealtime> client, Logger logger, int capacity,
+                         long flushIntervalMillis, int maxBatch, OverflowPolicy overflow) {
+        this.client = client;
+        this.logger = logger;
+        this.capacity = Math.max(1, capacity);
+        this.flushIntervalMillis = Math.max(0L, flushIntervalMillis);
+        this.maxBatch = Math.max(1, maxBatch);
+        this.overflow = overflow;
+        this.queue = new ArrayBlockingQueue<>(this.capacity);
+    }
+
+    /**
+     * 送信スレッドを開始する
+     */
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::run, "ChatJP-AblyPublisher");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * 送信スレッドを停止する。接続中であれば、残っているメッセージを送信してから停止する。
+     * @param timeoutMillis 送信を待つ時間の上限（ミリ秒）
+     */
+    public void shutdown(long timeoutMillis) {
+        Thread current;
+        synchronized (this) {
+            current = worker;
+            worker = null;
+            running = false;
+        }
+        if (current == null) {
+            return;
+        }
+        try {
+            current.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        current.interrupt();
+    }
+
+    /**
+     * メッセージを送信キューに入れる
+     * @param channel 送信先のチャンネル名
+     * @param message メッセージ
+     * @return キューに入れた場合true、キューが一杯で捨てた場合false
+     */
+    public boolean publish(String channel, Message message) {
+        Outgoing outgoing = new Outgoing(channel, message);
+        if (queue.offer(outgoing)) {
+            return true;
+        }
+        if (overflow == OverflowPolicy.DROP_OLDEST) {
+            // 古いものを捨てて入れ直す（他のスレッドと競合した場合は、今回のメッセージを捨てる）
+            if (queue.poll() != null) {
+                ChatMetrics.Counter.ABLY_DROPPED.increment();
+            }
+            if (queue.offer(outgoing)) {
+                return true;
+            }
+        }
+        ChatMetrics.Counter.ABLY_DROPPED.increment();
+        return false;
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                boolean stopping = !running;
+
+                collect(stopping);
+                if (pending.isEmpty()) {
+                    if (stopping) {
+                        return;
+                    }
+                    continue;
+                }
+
+                AblyRealtime current = client.get();
+                if (current == null || current.connection.state != ConnectionState.connected) {
+                    if (stopping) {
+                        ChatMetrics.Counter.ABLY_DROPPED.add(pending.size());
+                        pending.clear();
+                        return;
+                    }
+                    // 再接続を待つ（その間のメッセージは保持する）
+                    Thread.sleep(RECONNECT_WAIT_MILLIS);
+                    continue;
+                }
+
+                send(current);
+            }
+        } catch (InterruptedException e) {
+            if (!pending.isEmpty() || !queue.isEmpty()) {
+                logger.warning("Ablyに送信できなかったメッセージがあります（" + (pending.size() + queue.size()) + "件）");
+            }
+        }
+    }
+
+    // 送信するメッセージを集める
+    private void collect(boolean stopping) throws InterruptedException {
+
+        // 再送するメッセージは、新しいメッセージより先に送る
+        List<Outgoing> retries = new ArrayList<>();
+        Outgoing failedMessage;
+        while ((failedMessage = retry.poll()) != null) {
+            retries.add(failedMessage);
+        }
+        for (int i = retries.size() - 1; i >= 0; i--) {
+            pending.addFirst(retries.get(i));
+        }
+
+        if (pending.isEmpty()) {
+            Outgoing first = stopping ? queue.poll() : queue.poll(1, TimeUnit.SECONDS);
+            if (first == null) {
+                return;
+            }
+            pending.add(first);
+
+            // 少し待って、続けて届くメッセージを1回の送信にまとめる
+            if (flushIntervalMillis > 0 && !stopping) {
+                Thread.sleep(flushIntervalMillis);
+            }
+        }
+        queue.drainTo(pending);
+
+        // 接続が切れている間に溜まりすぎた場合は、古いものから捨てる
+        while (pending.size() > capacity) {
+            pending.pollFirst();
+            ChatMetrics.Counter.ABLY_DROPPED.increment();
+        }
+    }
+
+    // チャンネルごとにまとめて送信する
+    private void send(AblyRealtime current) {
+        Map<String, List<Outgoing>> batches = new LinkedHashMap<>();
+        for (int i = 0; i < maxBatch && !pending.isEmpty(); i++) {
+            Outgoing outgoing = pending.pollFirst();
+            batches.computeIfAbsent(outgoing.channel, c -> new ArrayList<>()).add(outgoing);
+        }
+
+        for (Map.Entry<String, List<Outgoing>> batch : batches.entrySet()) {
+            List<Outgoing> list = batch.getValue();
+            Message[] messages = new Message[list.size()];
+            for (int i = 0; i < messages.length; i++) {
+                messages[i] = list.get(i).message;
+            }
+
+            try {
+                current.channels.get(batch.getKey()).publish(messages, new CompletionListener() {
+                    @Override
+                    public void onSuccess() {
+                        // キューに入れてから送信が完了するまでの時間を記録する
+                        long now = System.nanoTime();
+                        for (Outgoing outgoing : list) {
+                            ChatMetrics.Stage.ABLY_PUBLISH.record(now - outgoing.enqueuedAt);
+                        }
+                        ChatMetrics.Counter.ABLY_PUBLISHED.add(list.size());
+                    }
+
+                    @Override
+                    public void onError(ErrorInfo reason) {
+                        ChatMetrics.Counter.ABLY_ERRORS.add(list.size());
+                        logger.warning("Ablyへのメッセージ送信に失敗しました: " + (reason == null ? "" : reason.message));
+                        requeue(list);
+                    }
+                });
+            } catch (AblyException e) {
+                ChatMetrics.Counter.ABLY_ERRORS.add(list.size());
+                logger.warning("Ablyへのメッセージ送信に失敗しました: " + e.getMessage());
+                requeue(list);
+            }
+        }
+    }
+
+    // 再送の回数が上限に達していないメッセージを、再送キューに戻す
+    private void requeue(List<Outgoing> list) {
+        for (Outgoing outgoing : list) {
+            if (++outgoing.attempts < MAX_ATTEMPTS) {
+                retry.add(outgoing);
+            } else {
+                ChatMetrics.Counter.ABLY_FAILED.increment();
+            }
+        }
+    }
+
+    // 送信するメッセージと送信先
+    private static final class Outgoing {
+        final String channel;
+        final Message message;
+        final long enqueuedAt = System.nanoTime();
+        int attempts;
+
+        Outgoing(String channel, Message message) {
+            this.channel = channel;
+            this.message = message;
+        }
+    }
+}
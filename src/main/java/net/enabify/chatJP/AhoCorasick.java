@@ -0,0 +1,174 @@
+package net.enabify.chatJP;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aho–Corasick法で、複数の文字列を1回の走査でまとめて検索するクラス
+ * 検索時間は登録した文字列の数によらず、テキストの長さに比例します。
+ * 英字の大文字・小文字は区別しません。
+ */
+public class AhoCorasick {
+
+    /**
+     * 一致した文字列を受け取る
+     */
+    public interface MatchListener {
+        /**
+         * @param pattern 一致した文字列の番号（登録順）
+         * @param start 一致した範囲の開始位置
+         * @param end 一致した範囲の終了位置（この位置は含まない）
+         */
+        void found(int pattern, int start, int end);
+    }
+
+    // ノードごとの子ノード（文字の昇順）
+    private final char[][] labels;
+    private final int[][] targets;
+    private final int[] fail;
+    // このノードで終わる文字列の番号（なければ-1）
+    private final int[] output;
+    // 失敗リンクを辿って最初に見つかる、文字列が終わるノード（なければ-1）
+    private final int[] outputLink;
+    private final int[] patternLengths;
+
+    /**
+     * コンストラクタ
+     * @param patterns 検索する文字列（空文字は無視される）
+     */
+    public AhoCorasick(List<String> patterns) {
+
+        // トライ木を作る
+        List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        List<Integer> outputs = new ArrayList<>();
+        children.add(new TreeMap<>());
+        outputs.add(-1);
+
+        patternLengths = new int[patterns.size()];
+        for (int p = 0; p < patterns.size(); p++) {
+            String pattern = patterns.get(p);
+            patternLengths[p] = pattern.length();
+            if (pattern.isEmpty()) {
+                continue;
+            }
+
+            int node = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = fold(pattern.charAt(i));
+                Integer next = children.get(node).get(c);
+                if (next == null) {
+                    next = children.size();
+                    children.add(new TreeMap<>());
+                    outputs.add(-1);
+                    children.get(node).put(c, next);
+                }
+                node = next;
+            }
+            // 同じ文字列が複数ある場合は、先に登録したものを使う
+            if (outputs.get(node) == -1) {
+                outputs.set(node, p);
+            }
+        }
+
+        int size = children.size();
+        labels = new char[size][];
+        targets = new int[size][];
+        output = new int[size];
+        for (int n = 0; n < size; n++) {
+            TreeMap<Character, Integer> map = children.get(n);
+            labels[n] = new char[map.size()];
+            targets[n] = new int[map.size()];
+            int k = 0;
+            for (Map.Entry<Character, Integer> e : map.entrySet()) {
+                labels[n][k] = e.getKey();
+                targets[n][k] = e.getValue();
+                k++;
+            }
+            output[n] = outputs.get(n);
+        }
+
+        // 幅優先で失敗リンクを張る
+        fail = new int[size];
+        outputLink = new int[size];
+        Arrays.fill(outputLink, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[0]) {
+            fail[child] = 0;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int k = 0; k < labels[node].length; k++) {
+                char c = labels[node][k];
+                int child = targets[node][k];
+
+                int f = fail[node];
+                int next = child(f, c);
+                while (next == -1 && f != 0) {
+                    f = fail[f];
+                    next = child(f, c);
+                }
+                fail[child] = next == -1 ? 0 : next;
+                outputLink[child] = output[fail[child]] != -1 ? fail[child] : outputLink[fail[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * テキストから、登録した文字列を全て探す（重なりも含む）
+     * @param text 検索対象
+     * @param listener 一致した文字列を受け取るリスナー
+     */
+    public void search(CharSequence text, MatchListener listener) {
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = fold(text.charAt(i));
+            int next = child(node, c);
+            while (next == -1 && node != 0) {
+                node = fail[node];
+                next = child(node, c);
+            }
+            node = next == -1 ? 0 : next;
+
+            for (int n = output[node] != -1 ? node : outputLink[node]; n != -1; n = outputLink[n]) {
+                int pattern = output[n];
+                listener.found(pattern, i + 1 - patternLengths[pattern], i + 1);
+            }
+        }
+    }
+
+    /**
+     * 登録されている文字列の数を返す
+     * @return 文字列の数
+     */
+    public int size() {
+        return patternLengths.length;
+    }
+
+    private int child(int node, char c) {
+        char[] l = labels[node];
+        int lo = 0;
+        int hi = l.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (l[mid] < c) {
+                lo = mid + 1;
+            } else if (l[mid] > c) {
+                hi = mid - 1;
+            } else {
+                return targets[node][mid];
+            }
+        }
+        return -1;
+    }
+
+    // 英大文字を小文字にそろえる
+    private static char fold(char c) {
+        return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+    }
+}
@@ -0,0 +1,68 @@
+package net.enabify.chatJP;
+
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.List;
+
+/**
+ * Paper（Bukkit）のスケジューラーでタスクを実行するクラス
+ */
+public class BukkitPlatformScheduler implements PlatformScheduler {
+
+    private final Plugin plugin;
+
+    public BukkitPlatformScheduler(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public Task runRepeating(Runnable task, long periodTicks) {
+        BukkitTask bukkitTask = Bukkit.getScheduler().runTaskTimer(plugin, task, 1L, Math.max(1L, periodTicks));
+        return bukkitTask::cancel;
+    }
+
+    @Override
+    public void runForPlayer(Player player, Runnable task) {
+        if (Bukkit.isPrimaryThread()) {
+            // メインスレッドからはそのまま実行する
+            if (player.isOnline()) {
+                task.run();
+            }
+            return;
+        }
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            if (player.isOnline()) {
+                task.run();
+            }
+        });
+    }
+
+    @Override
+    public void sendMessages(Audience audience, List<Component> messages) {
+        Runnable send = () -> {
+            for (Component message : messages) {
+                audience.sendMessage(message);
+            }
+        };
+        if (Bukkit.isPrimaryThread()) {
+            send.run();
+        } else {
+            Bukkit.getScheduler().runTask(plugin, send);
+        }
+    }
+
+    @Override
+    public void runAsync(Runnable task) {
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, task);
+    }
+
+    @Override
+    public void cancelAll() {
+        Bukkit.getScheduler().cancelTasks(plugin);
+    }
+}
@@ -0,0 +1,51 @@
+package net.enabify.chatJP;
+
+import io.papermc.paper.chat.ChatRenderer;
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.text.Component;
+import org.bukkit.entity.Player;
+
+/**
+ * チャットを「&lt;表示名&gt; メッセージ」の形で表示するレンダラー
+ * 表示は閲覧者によって変わらないので、最初に作ったComponentを全ての閲覧者に使い回します。
+ * 1つのメッセージ（1回のチャットイベント）ごとに作成します。
+ */
+public class CachedChatRenderer implements ChatRenderer {
+
+    private static final Component OPEN = Component.text("<");
+    private static final Component CLOSE = Component.text("> ");
+
+    // 最後に表示を作ったときの入力と結果
+    private volatile Rendered cache;
+
+    @Override
+    public Component render(Player source, Component sourceDisplayName, Component message, Audience viewer) {
+        Rendered current = cache;
+        // 他のプラグインが表示名やメッセージを変更した場合は作り直す
+        if (current != null && current.displayName == sourceDisplayName && current.message == message) {
+            return current.component;
+        }
+
+        Component component = Component.text()
+                .append(OPEN)
+                .append(sourceDisplayName)
+                .append(CLOSE)
+                .append(message)
+                .build();
+        cache = new Rendered(sourceDisplayName, message, component);
+        return component;
+    }
+
+    // 作った表示と、その入力
+    private static final class Rendered {
+        final Component displayName;
+        final Component message;
+        final Component component;
+
+        Rendered(Component displayName, Component message, Component component) {
+            this.displayName = displayName;
+            this.message = message;
+            this.component = component;
+        }
+    }
+}
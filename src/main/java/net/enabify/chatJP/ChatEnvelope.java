@@ -0,0 +1,357 @@
+package net.enabify.chatJP;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * サーバー間でやり取りするチャットメッセージ
+ * Ablyには設定に応じてJSON形式またはバイナリ形式（byte[]）で送信します。どちらの形式も読み込めます。
+ * 表示するメッセージのほかに変換の途中経過（変換元・カナ・漢字変換の結果・変換エンジン）を含むので、
+ * 受信したサーバーは同じ文章を変換し直さずに済みます。
+ *
+ * バイナリ形式:
+ * <pre>
+ * MAGIC(1) VERSION(1) timestamp(varint) senderId(str) playerName(str) message(str)
+ * （バージョン2以降）original(str) kana(str) kanji(str) engine(str)
+ * str = UTF-8のバイト数(varint) + UTF-8のバイト列
+ * </pre>
+ * 新しいバージョンでは末尾に項目を追加します。古いバージョンは、知らない項目を読み飛ばします。
+ */
+public class ChatEnvelope {
+
+    /**
+     * 送信する形式
+     */
+    public enum Format {
+
+        /** バイナリ形式 */
+        BINARY("binary"),
+
+        /** JSON形式（以前のバージョンのサーバーと混在させる場合） */
+        JSON("json");
+
+        private final String id;
+
+        Format(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String toString() {
+            return id;
+        }
+
+        /**
+         * 文字列から形式を取得する
+         * @param id 文字列
+         * @param def 該当しない場合の既定値
+         * @return 形式
+         */
+        public static Format fromID(String id, Format def) {
+            if (id == null) return def;
+            for (Format format : values()) {
+                if (format.id.equalsIgnoreCase(id)) {
+                    return format;
+                }
+            }
+            return def;
+        }
+    }
+
+    // バイナリ形式の先頭のバイト
+    private static final byte MAGIC = (byte) 0xCA;
+
+    // バイナリ形式のバージョン
+    private static final byte VERSION = 2;
+
+    private final String senderId;
+    private final String playerName;
+    private final String message;
+    private final long timestamp;
+    private final String original;
+    private final String kana;
+    private final String kanji;
+    private final String engine;
+
+    /**
+     * コンストラクタ（変換の途中経過を含まないメッセージ）
+     * @param senderId 送信したサーバーのID
+     * @param playerName プレイヤー名
+     * @param message メッセージ
+     * @param timestamp 送信した時刻（ミリ秒）
+     */
+    public ChatEnvelope(String senderId, String playerName, String message, long timestamp) {
+        this(senderId, playerName, message, timestamp, "", "", "", "");
+    }
+
+    /**
+     * コンストラクタ
+     * @param senderId 送信したサーバーのID
+     * @param playerName プレイヤー名
+     * @param message メッセージ
+     * @param timestamp 送信した時刻（ミリ秒）
+     * @param translation 日本語化した結果、nullの場合は変換の途中経過を含めない
+     */
+    public ChatEnvelope(String senderId, String playerName, String message, long timestamp, Translation translation) {
+        this(senderId, playerName, message, timestamp,
+                translation == null ? "" : translation.getOriginal(),
+                translation == null ? "" : translation.getKana(),
+                translation == null ? "" : translation.getKanji(),
+                translation == null ? "" : translation.getEngine().toString());
+    }
+
+    private ChatEnvelope(String senderId, String playerName, String message, long timestamp,
+                         String original, String kana, String kanji, String engine) {
+        this.senderId = senderId == null ? "" : senderId;
+        this.playerName = playerName;
+        this.message = message;
+        this.timestamp = timestamp;
+        this.original = original;
+        this.kana = kana;
+        this.kanji = kanji;
+        this.engine = engine;
+    }
+
+    public String getSenderId() {
+        return senderId;
+    }
+
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * 変換元のメッセージを返す
+     * @return 変換元、含まれていない場合は空文字
+     */
+    public String getOriginal() {
+        return original;
+    }
+
+    /**
+     * カナ変換の結果（漢字変換エンジンに渡した文字列）を返す
+     * @return カナ変換の結果、含まれていない場合は空文字
+     */
+    public String getKana() {
+        return kana;
+    }
+
+    /**
+     * 漢字変換エンジンの結果を返す
+     * @return 漢字変換の結果、含まれていない場合は空文字
+     */
+    public String getKanji() {
+        return kanji;
+    }
+
+    /**
+     * 漢字変換をしたエンジンを返す
+     * @return 変換エンジン、含まれていないか不明な場合はNONE
+     */
+    public JapanizeType getEngine() {
+        return JapanizeType.fromID(engine, JapanizeType.NONE);
+    }
+
+    /**
+     * 指定した形式に変換する
+     * @param format 形式
+     * @return Ablyのメッセージのデータ（byte[]またはString）
+     */
+    public Object encode(Format format) {
+        return format == Format.JSON ? toJson() : toBytes();
+    }
+
+    /**
+     * バイナリ形式に変換する
+     * @return バイト列
+     */
+    public byte[] toBytes() {
+        byte[] sender = senderId.getBytes(StandardCharsets.UTF_8);
+        byte[] name = playerName.getBytes(StandardCharsets.UTF_8);
+        byte[] text = message.getBytes(StandardCharsets.UTF_8);
+        byte[] org = original.getBytes(StandardCharsets.UTF_8);
+        byte[] kanaBytes = kana.getBytes(StandardCharsets.UTF_8);
+        byte[] kanjiBytes = kanji.getBytes(StandardCharsets.UTF_8);
+        byte[] engineBytes = engine.getBytes(StandardCharsets.UTF_8);
+
+        ByteWriter out = new ByteWriter(2 + 10 + 35 + sender.length + name.length + text.length
+                + org.length + kanaBytes.length + kanjiBytes.length + engineBytes.length);
+        out.write(MAGIC);
+        out.write(VERSION);
+        out.writeVarLong(timestamp);
+        out.writeBytes(sender);
+        out.writeBytes(name);
+        out.writeBytes(text);
+        out.writeBytes(org);
+        out.writeBytes(kanaBytes);
+        out.writeBytes(kanjiBytes);
+        out.writeBytes(engineBytes);
+        return out.toByteArray();
+    }
+
+    /**
+     * JSON形式に変換する
+     * @return JSON文字列
+     */
+    public String toJson() {
+        JSONObject json = new JSONObject();
+        json.put("playerName", playerName);
+        json.put("message", message);
+        json.put("senderId", senderId);
+        json.put("timestamp", timestamp);
+        json.put("original", original);
+        json.put("kana", kana);
+        json.put("kanji", kanji);
+        json.put("engine", engine);
+        return json.toString();
+    }
+
+    /**
+     * Ablyのメッセージのデータから読み込む
+     * @param data データ（バイナリ形式のbyte[]、またはJSON形式）
+     * @return メッセージ
+     * @throws IllegalArgumentException 形式が正しくない場合
+     */
+    public static ChatEnvelope decode(Object data) {
+        if (data instanceof byte[]) {
+            return fromBytes((byte[]) data);
+        }
+        if (data == null) {
+            throw new IllegalArgumentException("データがありません");
+        }
+
+        // 以前のバージョンのJSON形式（JsonObjectなどの場合は、toString()で文字列に変換）
+        try {
+            JSONObject json = new JSONObject(data instanceof String ? (String) data : data.toString());
+            return new ChatEnvelope(
+                    json.optString("senderId", ""),
+                    json.getString("playerName"),
+                    json.getString("message"),
+                    json.optLong("timestamp", 0L),
+                    json.optString("original", ""),
+                    json.optString("kana", ""),
+                    json.optString("kanji", ""),
+                    json.optString("engine", ""));
+        } catch (JSONException e) {
+            throw new IllegalArgumentException("JSONの形式が正しくありません: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * バイナリ形式から読み込む
+     * @param data バイト列
+     * @return メッセージ
+     * @throws IllegalArgumentException 形式が正しくない場合
+     */
+    public static ChatEnvelope fromBytes(byte[] data) {
+        if (data.length < 2 || data[0] != MAGIC) {
+            throw new IllegalArgumentException("ChatJPのメッセージではありません");
+        }
+        if (data[1] < 1) {
+            throw new IllegalArgumentException("対応していないバージョンです: " + data[1]);
+        }
+
+        // 新しいバージョンで追加された項目は読み飛ばす
+        ByteReader in = new ByteReader(data, 2);
+        long timestamp = in.readVarLong();
+        String senderId = in.readString();
+        String playerName = in.readString();
+        String message = in.readString();
+        if (data[1] < 2) {
+            return new ChatEnvelope(senderId, playerName, message, timestamp);
+        }
+        String original = in.readString();
+        String kana = in.readString();
+        String kanji = in.readString();
+        String engine = in.readString();
+        return new ChatEnvelope(senderId, playerName, message, timestamp, original, kana, kanji, engine);
+    }
+
+    // バイト列への書き込み
+    private static final class ByteWriter {
+        private byte[] buf;
+        private int pos;
+
+        ByteWriter(int initialSize) {
+            buf = new byte[initialSize];
+        }
+
+        void write(byte b) {
+            ensure(1);
+            buf[pos++] = b;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeVarLong(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return pos == buf.length ? buf : Arrays.copyOf(buf, pos);
+        }
+
+        private void ensure(int size) {
+            if (pos + size > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + size));
+            }
+        }
+    }
+
+    // バイト列からの読み込み
+    private static final class ByteReader {
+        private final byte[] buf;
+        private int pos;
+
+        ByteReader(byte[] buf, int pos) {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (pos >= buf.length) {
+                    throw new IllegalArgumentException("データが途中で終わっています");
+                }
+                byte b = buf[pos++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("数値が長すぎます");
+        }
+
+        String readString() {
+            long length = readVarLong();
+            if (length < 0 || length > buf.length - pos) {
+                throw new IllegalArgumentException("文字列の長さが正しくありません: " + length);
+            }
+            String value = new String(buf, pos, (int) length, StandardCharsets.UTF_8);
+            pos += (int) length;
+            return value;
+        }
+    }
+}
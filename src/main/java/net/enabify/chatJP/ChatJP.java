@@ -1,5 +1,9 @@
 package net.enabify.chatJP;
 
+import io.papermc.paper.event.player.AsyncChatEvent;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
@@ -7,11 +11,12 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
-import org.bukkit.event.player.AsyncPlayerChatEvent;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.Statistic;
 
 import java.util.Arrays;
 import org.bukkit.configuration.file.FileConfiguration;
@@ -20,25 +25,72 @@ import org.bukkit.configuration.file.YamlConfiguration;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import java.util.UUID;
 
 public final class ChatJP extends JavaPlugin implements Listener {
 
-    private File dataFile;
-    private FileConfiguration dataConfig;
-    private final Map<UUID, String> playerGroups = new HashMap<>();
-    private AblyManager ablyManager;
+    private GroupDataStore groupStore;
+    private final GroupRegistry groupRegistry = new GroupRegistry(new GroupMembers.Listener() {
+        @Override
+        public void activated(String groupId) {
+            onGroupActivated(groupId);
+        }
+
+        @Override
+        public void deactivated(String groupId) {
+            onGroupDeactivated(groupId);
+        }
+    });
+    private volatile AblyManager ablyManager;
+    private PlatformScheduler scheduler;
+    private JapanizeService japanizeService;
 
-    private static final long TICKS_PER_HOUR = 20L * 60L * 60L;
-    private static final long SIX_HOURS_TICKS = 6L * TICKS_PER_HOUR;
-    private static final long TWO_HOURS_TICKS = 2L * TICKS_PER_HOUR;
+    // プレイヤーごとの初心者マーク
+    private final PlayerTierCache playerTiers = new PlayerTierCache();
 
     // Ably APIキー（設定ファイルから読み込み）
     private String ablyApiKey;
 
-    // NGワードの設定
-    String[] ngwords = {
+    // 日本語変換の設定（設定ファイルから読み込み）
+    private JapanizeType japanizeType;
+    private String dictionaryFileName;
+
+    // IME変換キャッシュの設定（設定ファイルから読み込み）
+    private int imeCacheMaxSize;
+    private long imeCacheTtlSeconds;
+
+    // IME変換スレッドの設定（設定ファイルから読み込み）
+    private int imeThreads;
+    private int imeQueueSize;
+    private long imeTimeoutMillis;
+    private long imeBatchWindowMillis;
+    private int imeBatchMaxSize;
+
+    // IME変換のHTTP通信の設定（設定ファイルから読み込み）
+    private long imeConnectTimeoutMillis;
+    private long imeReadTimeoutMillis;
+    private int imeMaxConcurrentRequests;
+    private long dataSaveIntervalSeconds;
+    private long beginnerRefreshSeconds;
+    private String metricsFileName;
+    private long metricsIntervalSeconds;
+    private int metricsPort;
+    private PrometheusExporter metricsExporter;
+    private int ablyPublishQueueSize;
+    private long ablyPublishFlushIntervalMillis;
+    private int ablyPublishMaxBatch;
+    private AblyPublisher.OverflowPolicy ablyPublishOverflow;
+    private int ablyReceiveMaxPerTick;
+    private ChatEnvelope.Format ablyWireFormat;
+    private String dataStorageType;
+
+    // NGワードの初期設定（config.ymlのng-wordsがない場合に使用）
+    private static final String[] DEFAULT_NG_WORDS = {
             "<@!*&*[0-9]+>", //個人へのメンションをブロック
             "@here", //hereメンションをブロック
             "@everyone", //everyoneメンションをブロック
@@ -48,25 +100,57 @@ public final class ChatJP extends JavaPlugin implements Listener {
             "https?:\\/\\/[^\s]+", //URLをブロック
     };
 
+    // チャットイベントの中で変換を待つときに、IME変換の待ち時間の上限に足す時間（ミリ秒）
+    private static final long CHAT_WAIT_MARGIN_MILLIS = 50L;
+
+    // NGワードのフィルター（/chatjp reload で差し替えられる）
+    private volatile NGWordFilter ngWordFilter;
+
+    // 短縮コード（/chatjp reload で差し替えられる）
+    private volatile ShortcodeExpander shortcodes = ShortcodeExpander.empty();
+
 
     @Override
     public void onEnable() {
         // Plugin startup logic
+        scheduler = PlatformScheduler.create(this);
         loadConfigFile();
         loadDataFile();
-        loadGroups();
+        groupStore.start(dataSaveIntervalSeconds * 1000L);
 
-        // APIキーが設定されている場合のみAblyマネージャーを初期化
-        if (ablyApiKey != null && !ablyApiKey.isEmpty()) {
-            ablyManager = new AblyManager(this, ablyApiKey);
-            ablyManager.connect();
+        IMEConverter.configureCache(imeCacheMaxSize, imeCacheTtlSeconds * 1000L);
+        IMEConverter.configureHttp(imeConnectTimeoutMillis, imeReadTimeoutMillis, imeMaxConcurrentRequests);
+        japanizeService = new JapanizeService(japanizeType, createConverter(japanizeType), imeTimeoutMillis);
+
+        // リロード時など、既にオンラインのプレイヤーをグループの索引に登録
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            loadPlayerGroup(player);
+        }
 
-            // 既存のグループチャンネルも購読
-            for (String groupId : new HashSet<>(playerGroups.values())) {
-                if (groupId != null && !groupId.isEmpty() && !groupId.equals("global")) {
-                    ablyManager.subscribeToGroup(groupId);
+        // メトリクスをPrometheus形式で公開
+        if (!metricsFileName.isEmpty() || metricsPort > 0) {
+            File metricsFile = null;
+            if (!metricsFileName.isEmpty()) {
+                // 絶対パスはそのまま使う（node_exporterのtextfileコレクターのディレクトリを指定できるように）
+                metricsFile = new File(metricsFileName);
+                if (!metricsFile.isAbsolute()) {
+                    metricsFile = new File(getDataFolder(), metricsFileName);
                 }
             }
+            metricsExporter = new PrometheusExporter(getLogger(), metricsFile, metricsIntervalSeconds * 1000L, metricsPort);
+            metricsExporter.start();
+        }
+
+        // 初心者マークを計算し、以降は一定間隔で更新する
+        refreshPlayerTiers();
+        scheduler.runRepeating(this::refreshPlayerTiers, Math.max(1L, beginnerRefreshSeconds) * 20L);
+
+        // APIキーが設定されている場合のみAblyマネージャーを初期化
+        // （メンバーがオンラインのグループのチャンネルは、接続後に購読される）
+        if (ablyApiKey != null && !ablyApiKey.isEmpty()) {
+            ablyManager = new AblyManager(this, ablyApiKey, ablyPublishQueueSize, ablyPublishFlushIntervalMillis,
+                    ablyPublishMaxBatch, ablyPublishOverflow, ablyReceiveMaxPerTick, ablyWireFormat);
+            ablyManager.connect();
         } else {
             getLogger().warning("Ably API キーが設定されていません。Ablyは無効になります。");
         }
@@ -78,7 +162,10 @@ public final class ChatJP extends JavaPlugin implements Listener {
     @Override
     public void onDisable() {
         // Plugin shutdown logic
-        saveDataFile();
+        // 書き込まれていない変更を保存
+        if (groupStore != null) {
+            groupStore.shutdown();
+        }
 
         // Ablyから切断
         if (ablyManager != null) {
@@ -89,11 +176,29 @@ public final class ChatJP extends JavaPlugin implements Listener {
             }
         }
 
+        if (japanizeService != null) {
+            japanizeService.shutdown();
+        }
+
+        if (metricsExporter != null) {
+            metricsExporter.stop();
+            metricsExporter = null;
+        }
+
+        if (scheduler != null) {
+            scheduler.cancelAll();
+        }
+
         getLogger().info("ChatJP plugin disabled!");
     }
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        // 管理コマンドはコンソールからも利用可能
+        if (command.getName().equalsIgnoreCase("chatjp")) {
+            return onAdminCommand(sender, args);
+        }
+
         // プレイヤーのみが利用可能
         if (!(sender instanceof Player)) return false;
 
@@ -101,37 +206,12 @@ public final class ChatJP extends JavaPlugin implements Listener {
 
         if (command.getName().equalsIgnoreCase("group")) {
             if (args.length < 1) {
-                UUID playerUUID = senderUUID;
-                String playerGroup = getPlayerGroup(playerUUID);
-
-                playerGroups.remove(senderUUID);
-                dataConfig.set(senderUUID.toString(), null);
-                saveDataFile();
+                // グループに誰もいなくなった場合は、チャンネルの購読も中止される
+                groupRegistry.setGroup((Player) sender, null);
+                groupStore.set(senderUUID, null);
 
                 sender.sendMessage(ChatColor.GOLD+"[グループチャット] "+ChatColor.WHITE+"グループから退出しました。");
 
-                // グループに他のプレイヤーがいるかチェック
-                if (playerGroup != null && !playerGroup.isEmpty() && !playerGroup.equals("global")) {
-                    int playerCountInGroup = 0;
-                    for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-                        if (onlinePlayer.getUniqueId().equals(playerUUID)) {
-                            continue; // 退出するプレイヤーは除外
-                        }
-                        String otherPlayerGroup = getPlayerGroup(onlinePlayer.getUniqueId());
-                        if (playerGroup.equals(otherPlayerGroup)) {
-                            playerCountInGroup++;
-                        }
-                    }
-                    
-                    // グループに誰もいなくなった場合、チャンネルの購読を中止
-                    if (playerCountInGroup == 0) {
-                        if (ablyManager != null) {
-                            ablyManager.unsubscribeFromChannel(playerGroup);
-                            getLogger().info("グループ「" + playerGroup + "」にプレイヤーがいなくなったため、チャンネルの購読を中止しました。");
-                        }
-                    }
-                }
-
                 return true;
             }
 
@@ -148,12 +228,9 @@ public final class ChatJP extends JavaPlugin implements Listener {
                 return true;
             }
 
-            playerGroups.put(senderUUID, groupId);
-            dataConfig.set(senderUUID.toString(), groupId);
-            saveDataFile();
-            
-            // 新しいグループチャンネルを購読
-            ablyManager.subscribeToGroup(groupId);
+            // 元のグループから抜け、新しいグループチャンネルを購読
+            groupRegistry.setGroup((Player) sender, groupId);
+            groupStore.set(senderUUID, groupId);
             
             sender.sendMessage(ChatColor.GOLD+"[グループチャット] "+ChatColor.WHITE+"グループ " + groupId + " に参加しました！");
 
@@ -175,39 +252,161 @@ public final class ChatJP extends JavaPlugin implements Listener {
 
         String message = String.join(" ", Arrays.copyOfRange(args, 1, args.length));
 
-        //日本語化
-        String result = translate(message);
+        Player player = (Player) sender;
+        String decoratedSenderName = buildChatDisplayName(player);
+        String decoratedTargetName = buildChatDisplayName(target);
 
-        String decoratedSenderName = buildChatDisplayName((Player) sender);
-        String decoratedTargetName = buildChatDisplayName((Player) target);
+        //日本語化（メインスレッドをブロックしないよう、変換が終わってから送信する）
+        translateAsync(message).thenAccept(result -> {
+            String line = ChatColor.WHITE + "[" + decoratedSenderName + " -> " + decoratedTargetName + "] " + result;
 
-        target.sendMessage(ChatColor.WHITE + "[" + decoratedSenderName + " -> " + decoratedTargetName + "] " + result);
+            // 変換が終わったスレッド（IME変換のスレッドなど）からは送信せず、それぞれのプレイヤーのスレッドで送信する
+            scheduler.runForPlayer(player, () -> {
+                // 変換している間に相手がログアウトしていることがある
+                if (!target.isOnline()) {
+                    player.sendMessage(ChatColor.RED + "プレイヤーが見つかりませんでした...");
+                    return;
+                }
+                scheduler.runForPlayer(target, () -> target.sendMessage(line));
 
-        // コンソールに表示
-        getLogger().info("[" + sender.getName() + " -> " + target.getName() + "] " + result);
+                // コンソールに表示
+                getLogger().info("[" + player.getName() + " -> " + target.getName() + "] " + result);
 
-        // 送信者にもログが残るようにする
-        sender.sendMessage(ChatColor.WHITE + "[" + decoratedSenderName + " -> " + decoratedTargetName + "] " + result);
+                // 送信者にもログが残るようにする
+                player.sendMessage(line);
+            });
+        });
 
         return true;
     }
 
+    /**
+     * 管理コマンド（/chatjp）の処理
+     * @param sender 実行者
+     * @param args 引数
+     * @return 使い方が正しい場合true
+     */
+    private boolean onAdminCommand(CommandSender sender, String[] args) {
+        if (args.length < 1) {
+            return false;
+        }
+
+        if (args[0].equalsIgnoreCase("reload")) {
+            FileConfiguration config = YamlConfiguration.loadConfiguration(new File(getDataFolder(), "config.yml"));
+            loadNGWords(config);
+            loadShortcodes(config);
+            sender.sendMessage(ChatColor.GOLD + "[ChatJP] " + ChatColor.WHITE + "NGワードを再読み込みしました（"
+                    + ngWordFilter.getRules().size() + "件、単語リスト" + ngWordFilter.getWordCount() + "語）。");
+            sender.sendMessage(ChatColor.GOLD + "[ChatJP] " + ChatColor.WHITE + "短縮コードを再読み込みしました（"
+                    + shortcodes.size() + "件）。");
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("ngwords")) {
+            NGWordFilter filter = ngWordFilter;
+            List<String> rules = filter.getRules();
+            sender.sendMessage(ChatColor.GOLD + "[ChatJP] " + ChatColor.WHITE + "NGワード（" + rules.size() + "件）:");
+            for (int i = 0; i < rules.size(); i++) {
+                sender.sendMessage(ChatColor.GRAY + " " + rules.get(i) + ChatColor.WHITE + " - " + filter.getHitCount(i) + "回");
+            }
+            sender.sendMessage(ChatColor.GOLD + "[ChatJP] " + ChatColor.WHITE + "単語リスト（" + filter.getWordCount()
+                    + "語）: " + filter.getWordHitCount() + "回");
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("stats")) {
+            if (args.length >= 2 && args[1].equalsIgnoreCase("reset")) {
+                ChatMetrics.reset();
+                sender.sendMessage(ChatColor.GOLD + "[ChatJP] " + ChatColor.WHITE + "統計を消去しました。");
+                return true;
+            }
+
+            sender.sendMessage(ChatColor.GOLD + "[ChatJP] " + ChatColor.WHITE + "処理時間（ミリ秒）:");
+            for (ChatMetrics.Stage stage : ChatMetrics.Stage.values()) {
+                LatencyHistogram.Snapshot snapshot = stage.snapshot();
+                sender.sendMessage(ChatColor.GRAY + " " + stage.getLabel() + ChatColor.WHITE
+                        + " - " + snapshot.getCount() + "回"
+                        + " / p50: " + ChatMetrics.millis(snapshot.percentile(0.5))
+                        + " / p99: " + ChatMetrics.millis(snapshot.percentile(0.99))
+                        + " / 最大: " + ChatMetrics.millis(snapshot.getMax()));
+            }
+
+            long imeRequests = ChatMetrics.Counter.IME_REQUESTS.get();
+            long imeErrors = ChatMetrics.Counter.IME_ERRORS.get();
+            long ablyPublished = ChatMetrics.Counter.ABLY_PUBLISHED.get();
+            long ablyErrors = ChatMetrics.Counter.ABLY_ERRORS.get();
+            sender.sendMessage(ChatColor.GOLD + "[ChatJP] " + ChatColor.WHITE + "IME通信: " + imeRequests + "回"
+                    + " / 失敗: " + imeErrors
+                    + String.format(" (失敗率 %.1f%%)", ChatMetrics.errorRate(imeErrors, imeRequests) * 100.0));
+            sender.sendMessage(ChatColor.GOLD + "[ChatJP] " + ChatColor.WHITE + "Ably送信: " + ablyPublished + "件"
+                    + " / 失敗: " + ablyErrors
+                    + String.format(" (失敗率 %.1f%%)", ChatMetrics.errorRate(ablyErrors, ablyPublished + ablyErrors) * 100.0)
+                    + " / 受信: " + ChatMetrics.Counter.ABLY_RECEIVED.get() + "件");
+            // キューが一杯（送信が追いつかない）と再送の上限（Ablyに接続できない）は原因が異なるので分けて表示する
+            sender.sendMessage(ChatColor.GOLD + "[ChatJP] " + ChatColor.WHITE + "Ably送信の破棄: "
+                    + "キューが一杯 " + ChatMetrics.Counter.ABLY_DROPPED.get() + "件"
+                    + " / 再送の上限 " + ChatMetrics.Counter.ABLY_FAILED.get() + "件");
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("cache")) {
+            ConversionCache cache = IMEConverter.getCache();
+
+            if (args.length >= 2 && args[1].equalsIgnoreCase("clear")) {
+                cache.clear();
+                sender.sendMessage(ChatColor.GOLD + "[ChatJP] " + ChatColor.WHITE + "IME変換キャッシュを消去しました。");
+                return true;
+            }
+
+            cache.purgeExpired();
+            sender.sendMessage(ChatColor.GOLD + "[ChatJP] " + ChatColor.WHITE + "IME変換キャッシュ: "
+                    + cache.size() + "/" + cache.getMaxSize() + "件");
+            sender.sendMessage(ChatColor.GOLD + "[ChatJP] " + ChatColor.WHITE + "ヒット: " + cache.getHitCount()
+                    + " / ミス: " + cache.getMissCount()
+                    + " / 追い出し: " + cache.getEvictionCount()
+                    + String.format(" (ヒット率 %.1f%%)", cache.getHitRate() * 100.0));
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * プレイヤーのログイン前（非同期）に呼び出されるメソッド
+     * 所属グループを保存先から読み込んでおき、参加時にメインスレッドで読み込まずに済むようにする。
+     * @param event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        UUID uuid = event.getUniqueId();
+        groupRegistry.load(uuid, groupStore.load(uuid));
+    }
+
+    /**
+     * プレイヤーのログインが拒否された場合に、読み込んでおいた所属グループを破棄する
+     * @param event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLogin(PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            groupRegistry.offline(event.getPlayer().getUniqueId());
+        }
+    }
+
     /**
      * プレイヤーがサーバーに参加したときに呼び出されるメソッド
      * @param event
      */
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
-        UUID playerUUID = event.getPlayer().getUniqueId();
-        String playerGroup = getPlayerGroup(playerUUID);
-        
-        // プレイヤーがグループに参加している場合、そのグループチャンネルを購読
-        if (playerGroup != null && !playerGroup.isEmpty() && !playerGroup.equals("global")) {
-            if (ablyManager != null) {
-                ablyManager.subscribeToGroup(playerGroup);
-                getLogger().info("プレイヤー " + event.getPlayer().getName() + " がグループ「" + playerGroup + "」に参加しているため、チャンネルを購読しました。");
-            }
-        }
+        // プレイヤーがグループに参加している場合、そのグループのメンバーに追加（必要に応じてチャンネルを購読）
+        loadPlayerGroup(event.getPlayer());
+
+        // 初心者マークを計算（チャットのたびに統計を読まないようにする）
+        playerTiers.update(event.getPlayer());
     }
 
     /**
@@ -216,30 +415,32 @@ public final class ChatJP extends JavaPlugin implements Listener {
      */
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
-        UUID playerUUID = event.getPlayer().getUniqueId();
-        String playerGroup = getPlayerGroup(playerUUID);
-        
-        // プレイヤーがグループに参加している場合、そのグループに他のプレイヤーがいるかチェック
-        if (playerGroup != null && !playerGroup.isEmpty() && !playerGroup.equals("global")) {
-            // グループに参加中の他のプレイヤー数をカウント
-            int playerCountInGroup = 0;
-            for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-                if (onlinePlayer.getUniqueId().equals(playerUUID)) {
-                    continue; // 退出するプレイヤーは除外
-                }
-                String otherPlayerGroup = getPlayerGroup(onlinePlayer.getUniqueId());
-                if (playerGroup.equals(otherPlayerGroup)) {
-                    playerCountInGroup++;
-                }
-            }
-            
-            // グループに誰もいなくなった場合、チャンネルの購読を中止
-            if (playerCountInGroup == 0) {
-                if (ablyManager != null) {
-                    ablyManager.unsubscribeFromChannel(playerGroup);
-                    getLogger().info("グループ「" + playerGroup + "」にプレイヤーがいなくなったため、チャンネルの購読を中止しました。");
-                }
-            }
+        // プレイヤーがグループに参加している場合、そのグループのメンバーから取り除き、メモリからも破棄する
+        // （グループに誰もいなくなった場合は、チャンネルの購読を中止）
+        groupRegistry.offline(event.getPlayer().getUniqueId());
+        playerTiers.remove(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * グループに最初のオンラインのメンバーが現れたときに、チャンネルを購読する
+     * @param groupId グループID
+     */
+    private void onGroupActivated(String groupId) {
+        AblyManager manager = ablyManager;
+        if (manager != null) {
+            manager.subscribeToGroup(groupId);
+        }
+    }
+
+    /**
+     * グループにオンラインのメンバーがいなくなったときに、チャンネルの購読を中止する
+     * @param groupId グループID
+     */
+    private void onGroupDeactivated(String groupId) {
+        AblyManager manager = ablyManager;
+        if (manager != null) {
+            manager.unsubscribeFromChannel(groupId);
+            getLogger().info("グループ「" + groupId + "」にプレイヤーがいなくなったため、チャンネルの購読を中止しました。");
         }
     }
 
@@ -248,7 +449,7 @@ public final class ChatJP extends JavaPlugin implements Listener {
      * @param event
      */
     @EventHandler
-    public void onPlayerChat(AsyncPlayerChatEvent event) {
+    public void onPlayerChat(AsyncChatEvent event) {
 
 
         // プレイヤーの発言ではない場合は、そのまま無視する
@@ -256,7 +457,7 @@ public final class ChatJP extends JavaPlugin implements Listener {
             return;
         }
 
-        String message = event.getMessage();
+        String message = PlainTextComponentSerializer.plainText().serialize(event.message());
 
         // コマンド実行の場合は、そのまま無視する
         if ( message.startsWith("/") ) {
@@ -272,229 +473,301 @@ public final class ChatJP extends JavaPlugin implements Listener {
 
             // メッセージの頭の「!」を削除
             message = message.substring(1); // 先頭の1文字を削除
-            // メッセージを日本語化
-            String result = translate(message);
-            String buildBeginnerMark = buildBeginnerMark(event.getPlayer());
-            event.setMessage(result + buildBeginnerMark);
-
-            // Ablyに全体チャットとして送信
-            if (ablyManager != null) {
-                String plainResult = ChatColor.stripColor(result);
-                ablyManager.sendMessage("global", event.getPlayer().getName(), plainResult);
-            }
-
+            sendGlobalChat(event, message);
             return;
         }
 
 
         if (senderGroup == null) {
             //グループには参加していなかった場合（通常チャット）
-
-            // メッセージを日本語化
-            String result = translate(message);
-            String buildBeginnerMark = buildBeginnerMark(event.getPlayer());
-            event.setMessage(result + buildBeginnerMark);
-
-            // Ablyに全体チャットとして送信
-            if (ablyManager != null) {
-                String plainResult = ChatColor.stripColor(result);
-                ablyManager.sendMessage("global", event.getPlayer().getName(), plainResult);
-            }
+            sendGlobalChat(event, message);
 
         } else {
             // グループに参加していた場合（グループチャット）
             event.setCancelled(true); // 通常のチャットはキャンセル
 
-            // メッセージを日本語化
-            String result = translate(message);
+            Player sender = event.getPlayer();
+            String displayName = buildChatDisplayName(sender);
 
-                    String msg = ChatColor.GOLD + "[グループ | " + senderGroup + "] " +
-                        ChatColor.WHITE + "<" + buildChatDisplayName(event.getPlayer()) + "> " + result;
+            // メッセージを日本語化し、変換が終わってから配信する（チャットスレッドはブロックしない）
+            translateDetailedAsync(message).thenAccept(translation -> {
+                String result = translation.getText();
+                String msg = ChatColor.GOLD + "[グループ | " + senderGroup + "] " +
+                        ChatColor.WHITE + "<" + displayName + "> " + result;
 
-            for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-                String targetGroup = getPlayerGroup(onlinePlayer.getUniqueId());
-                if (senderGroup.equals(targetGroup)) {
-                    onlinePlayer.sendMessage(msg);
-                }
-            }
+                // Componentへの変換は1回だけ行い、グループのAudienceにまとめて送信する
+                Component component = LegacyComponentSerializer.legacySection().deserialize(msg);
+                scheduler.sendMessages(groupRegistry.getMembers().audience(senderGroup),
+                        Collections.singletonList(component));
 
-            // コンソールに表示
-            getLogger().info(msg);
+                // コンソールに表示
+                getLogger().info(msg);
 
-            // Ablyにグループチャットとして送信
-            if (ablyManager != null) {
-                String plainResult = ChatColor.stripColor(result);
-                ablyManager.sendMessage(senderGroup, event.getPlayer().getName(), plainResult);
+                // Ablyにグループチャットとして送信（変換結果も共有する）
+                if (ablyManager != null) {
+                    String plainResult = ChatColor.stripColor(result);
+                    ablyManager.sendMessage(senderGroup, sender.getName(), plainResult, translation);
 
-                //getLogger().info("Ablyにグループチャットメッセージを送信しました: グループ " + senderGroup + ", プレイヤー " + event.getPlayer().getName() + ", メッセージ " + plainResult);
-            }
+                    //getLogger().info("Ablyにグループチャットメッセージを送信しました: グループ " + senderGroup + ", プレイヤー " + sender.getName() + ", メッセージ " + plainResult);
+                }
+            });
         }
     }
 
 
     /**
-     * 指定されたメッセージ内のNGワードを伏字にする関数
+     * 全体チャットの表示を設定し、Ablyにも送信する
+     * イベントはキャンセルせず、閲覧者の一覧や他のプラグインの処理はそのまま残す。
+     * メッセージは1回だけComponentに変換し、表示は全ての閲覧者で使い回す。
+     * @param event チャットイベント
      * @param message 元のメッセージ
-     * @param ngWords 伏字にすべき単語の正規表現配列
-     * @return 伏字にされたメッセージ
      */
-    private String maskNGWord(String message, String[] ngWords) {
-        if (ngWords == null || ngWords.length == 0) {
-            return message;
+    private void sendGlobalChat(AsyncChatEvent event, String message) {
+        Player sender = event.getPlayer();
+        Translation translation = translateWithinBudget(message);
+        String result = translation.getText();
+
+        event.message(LegacyComponentSerializer.legacySection().deserialize(result + buildBeginnerMark(sender)));
+        event.renderer(new CachedChatRenderer());
+
+        // Ablyに全体チャットとして送信（変換結果も共有する）
+        AblyManager manager = ablyManager;
+        if (manager != null) {
+            String plainResult = ChatColor.stripColor(result);
+            manager.sendMessage("global", sender.getName(), plainResult, translation);
         }
+    }
 
-        for (String ngWord : ngWords) {
-            if (ngWord != null && !ngWord.isEmpty()) {
-                message = message.replaceAll("(?i)" + ngWord, "****");
-            }
+    /**
+     * チャットイベントの中でメッセージを日本語化する
+     * 待つのはIME変換の待ち時間の上限（ime.timeout-ms）までで、通常はその時点でカナ変換のみの結果になる。
+     * それでも結果が出ない場合は、NGワードをマスクしただけのメッセージを使う。
+     * @param message 元のメッセージ
+     * @return 日本語化した結果
+     */
+    private Translation translateWithinBudget(String message) {
+        CompletableFuture<Translation> future = translateDetailedAsync(message);
+        try {
+            // 変換側の上限（カナ変換の結果で完了する）が先に来るよう、少しだけ長く待つ
+            return future.get(imeTimeoutMillis + CHAT_WAIT_MARGIN_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // 下のマスクしただけのメッセージを使う
         }
+        String masked = ngWordFilter.mask(message);
+        return Translation.untranslated(masked, ChatColor.WHITE + masked);
+    }
 
-        return message;
+
+    /**
+     * メッセージを日本語化する。IME変換の待ち時間の上限を超えてブロックすることはない。
+     * @param message 元のメッセージ
+     * @return 表示用に変換されたメッセージ
+     */
+    public String translate(String message) {
+        return translateAsync(message).join();
     }
 
     /**
-     * 特定の数字コード（52、08、58、082）をランダムな挨拶に変換する
+     * メッセージを非同期に日本語化する
      * @param message 元のメッセージ
-     * @return 変換されたメッセージ、または変換しない場合はnull
+     * @return 表示用に変換されたメッセージを返すFuture
      */
-    private String translateGreetingCode(String message) {
-        Random random = new Random();
-        
-        if (message.equals("52")) {
-            String[] greetings = {
-                "こんにちは", "こんにちは！", "こんにちは^^", "こんにちはー", "こんにちは～",
-                "こんです", "こんです！", "こんです^^", "こんですー", "こんです～",
-            };
-            return greetings[random.nextInt(greetings.length)];
-        } else if (message.equals("08")) {
-            String[] greetings = {
-                "おはようございます", "おはようございます！", "おはようございます^^",
-                "おはようございます～", "おはようございますー",
-                "おはです", "おはです！", "おはです^^", "おはです～", "おはですー"
-            };
-            return greetings[random.nextInt(greetings.length)];
-        } else if (message.equals("58")) {
-            String[] greetings = {
-                "こんばんは", "こんばんは！", "こんばんは^^", "こんばんは～", "こんばんはー",
-                "こんです", "こんです！", "こんです^^", "こんですー", "こんです～"
-            };
-            return greetings[random.nextInt(greetings.length)];
-        } else if (message.equals("082")) {
-            String[] greetings = {
-                "新規さんよろしくです！", "新規さんよろしくです^^", "新規さんよろしくです～",
-                "新規さん初めまして！", "新規さん初めまして", "新規さん初めまして～",
-                "お初さんこんにちは！", "お初さんこんにちは^^", "お初さんこんにちは～",
-                "お初さんよろしくお願いします", "お初さんよろしくお願いします！", "お初さんよろしくお願いします～",
-                "初見さんいらっしゃい！", "初見さんいらっしゃい", "初見さんいらっしゃい～",
-                "よろしくね！", "よろしくね^^", "よろしくね～",
-                "よろしくお願いします", "よろしくお願いします", "よろしくお願いします～",
-                "はじめまして！", "はじめまして^^", "はじめまして～",
-                "これからよろしくお願いします", "これからよろしくお願いします！",
-            };
-            return greetings[random.nextInt(greetings.length)];
-        }
-        
-        return null;
+    public CompletableFuture<String> translateAsync(String message) {
+        return translateDetailedAsync(message).thenApply(Translation::getText);
     }
 
-    public String translate(String message) {
+    /**
+     * メッセージを非同期に日本語化し、変換の途中経過も含めた結果を返す
+     * @param message 元のメッセージ
+     * @return 日本語化した結果を返すFuture（表示する文字列は、表示用に変換されたメッセージ）
+     */
+    public CompletableFuture<Translation> translateDetailedAsync(String message) {
         // NGワードをマスクする（ローマ字）
-        message = maskNGWord(message, ngwords);
+        NGWordFilter filter = ngWordFilter;
+        String masked = filter.mask(message);
 
-        // 特定の数字コードをランダムな挨拶に変換
-        String greetingTranslation = translateGreetingCode(message);
+        // 短縮コード（52、08など）を、登録された文章のどれかに変換
+        String greetingTranslation = shortcodes.expand(masked);
         if (greetingTranslation != null) {
-            return ChatColor.WHITE + greetingTranslation + ChatColor.GRAY + " (" + message + ")";
+            return CompletableFuture.completedFuture(Translation.untranslated(masked,
+                    ChatColor.WHITE + greetingTranslation + ChatColor.GRAY + " (" + masked + ")"));
         }
 
-        if (Japanizer.isNeedToJapanize(message)) {
+        if (japanizeService.getType() != JapanizeType.NONE && Japanizer.isNeedToJapanize(masked)) {
             // Japanizeで、日本語化する
-            String japanize = Japanizer.japanize(message);
-            if ( japanize.length() > 0 ) {
-                // NGワードをマスクする（日本語）
-                japanize = maskNGWord(japanize, ngwords);
-            }
-
-            String result = ChatColor.WHITE + japanize
-                    + ChatColor.GRAY + " (" + message + ")";
+            return japanizeService.translateAsync(masked).thenApply(translation -> {
+                String japanize = translation.getText();
+                if ( japanize.length() > 0 ) {
+                    // NGワードをマスクする（日本語）
+                    japanize = filter.mask(japanize);
+                }
 
-            return result;
+                return translation.withText(ChatColor.WHITE + japanize
+                        + ChatColor.GRAY + " (" + masked + ")");
+            });
         } else {
             // 日本語化しない場合は、そのまま返す
-            return ChatColor.WHITE + message;
+            return CompletableFuture.completedFuture(Translation.untranslated(masked, ChatColor.WHITE + masked));
         }
-
     }
 
-    private String buildChatDisplayName(Player player) {
-        String baseName = player.getDisplayName();
-        long playTicks = player.getStatistic(Statistic.PLAY_ONE_MINUTE);
-
-        if (playTicks <= SIX_HOURS_TICKS) {
-            StringBuilder name = new StringBuilder(baseName);
-            name.append(ChatColor.GREEN).append("*");
-            if (playTicks <= TWO_HOURS_TICKS) {
-                name.append(ChatColor.GREEN).append("新規さん");
-            }
-            name.append(ChatColor.RESET);
-            return name.toString();
+    /**
+     * 日本語変換タイプに応じた漢字変換エンジンを作成する
+     * @param type 日本語変換タイプ
+     * @return 漢字変換エンジン
+     */
+    private Converter createConverter(JapanizeType type) {
+        switch (type) {
+            case GOOGLE_IME:
+                return new GoogleIMEConverter(imeThreads, imeQueueSize, imeBatchWindowMillis, imeBatchMaxSize);
+            case OFFLINE_DICT:
+                File dictionaryFile = new File(getDataFolder(), dictionaryFileName);
+                File compiledFile = DictionaryCompiler.compiledFileFor(dictionaryFile);
+                try {
+                    // テキストの辞書が更新されたか、以前の形式のバイナリ辞書であれば作り直す
+                    if (!compiledFile.equals(dictionaryFile) && dictionaryFile.exists()
+                            && (compiledFile.lastModified() < dictionaryFile.lastModified()
+                                || !MappedDictionary.isCompatible(compiledFile.toPath()))) {
+                        int count = DictionaryCompiler.compile(dictionaryFile.toPath(), compiledFile.toPath());
+                        getLogger().info("辞書ファイルを " + compiledFile.getName() + " に変換しました（" + count + "語）");
+                    }
+
+                    MappedDictionary dictionary = MappedDictionary.open(compiledFile.toPath());
+                    getLogger().info("辞書ファイルを読み込みました（" + dictionary.size() + "語）");
+                    return new DictionaryConverter(dictionary);
+                } catch (IOException e) {
+                    getLogger().warning("辞書ファイル " + compiledFile.getName() + " の読み込みに失敗しました。カナ変換のみ行います: " + e.getMessage());
+                    return kana -> kana;
+                }
+            default:
+                // カナ変換のみ（NONEの場合は日本語化自体を行わない）
+                return kana -> kana;
         }
+    }
 
-        return baseName;
+    /**
+     * 初心者マークを付けた表示名を返す（マークは参加時に計算したものを使う）
+     * @param player プレイヤー
+     * @return 表示名
+     */
+    private String buildChatDisplayName(Player player) {
+        return player.getDisplayName() + playerTiers.get(player.getUniqueId()).getMark();
     }
 
+    /**
+     * メッセージの後ろに付ける初心者マークを返す（参加時に計算したものを使う）
+     * @param player プレイヤー
+     * @return マーク（先頭に空白を含む）
+     */
     private String buildBeginnerMark(Player player) {
-        String BeginnerMark = " ";
-        long playTicks = player.getStatistic(Statistic.PLAY_ONE_MINUTE);
-
-        if (playTicks <= SIX_HOURS_TICKS) {
-            StringBuilder name = new StringBuilder(BeginnerMark);
-            name.append(ChatColor.GREEN).append("*");
-            if (playTicks <= TWO_HOURS_TICKS) {
-                name.append(ChatColor.GREEN).append("新規さん");
-            }
-            name.append(ChatColor.RESET);
-            return name.toString();
-        }
+        return playerTiers.get(player.getUniqueId()).getBeginnerMark();
+    }
 
-        return BeginnerMark;
+    /**
+     * オンラインのプレイヤーの初心者マークを、それぞれのプレイヤーのスレッドで計算し直す
+     */
+    private void refreshPlayerTiers() {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            scheduler.runForPlayer(player, () -> playerTiers.update(player));
+        }
     }
 
     public String getPlayerGroup(UUID uuid) {
-        return playerGroups.get(uuid);
+        return groupRegistry.getGroup(uuid);
+    }
+
+    /**
+     * グループごとのオンラインのメンバーの索引を返す
+     * @return 索引
+     */
+    public GroupMembers getGroupMembers() {
+        return groupRegistry.getMembers();
+    }
+
+    /**
+     * サーバーの種類に合わせたスケジューラーを返す
+     * @return スケジューラー
+     */
+    public PlatformScheduler getPlatformScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * 日本語変換タイプを返す
+     * @return 日本語変換タイプ
+     */
+    public JapanizeType getJapanizeType() {
+        return japanizeType;
     }
 
     private void loadDataFile() {
-        dataFile = new File(getDataFolder(), "data.yml");
-        if (!dataFile.exists()) {
-            dataFile.getParentFile().mkdirs();
+        GroupStorage storage = null;
+        if (dataStorageType.equalsIgnoreCase("sqlite")) {
             try {
-            if (dataFile.createNewFile()) {
-                getLogger().info("data.yml ファイルを新規作成しました。");
+                storage = openSqliteStorage();
+            } catch (IOException e) {
+                getLogger().severe("SQLiteのデータベースを開けませんでした。data.ymlを使用します: " + e.getMessage());
             }
+        }
+        if (storage == null) {
+            try {
+                storage = new YamlGroupStorage(new File(getDataFolder(), "data.yml"), getLogger());
             } catch (IOException e) {
-            getLogger().severe("data.yml ファイルの作成に失敗しました: " + e.getMessage());
+                getLogger().severe("data.yml の読み込みに失敗しました: " + e.getMessage());
+                storage = new GroupStorage() {
+                    @Override
+                    public String load(UUID uuid) {
+                        return null;
+                    }
+
+                    @Override
+                    public void save(Map<UUID, String> changes) throws IOException {
+                        throw new IOException("data.yml を読み込めなかったため、保存できません");
+                    }
+                };
             }
         }
-        dataConfig = YamlConfiguration.loadConfiguration(dataFile);
+        groupStore = new GroupDataStore(storage, getLogger());
     }
 
-    private void saveDataFile() {
-        try {
-            dataConfig.save(dataFile);
-        } catch (IOException e) {
-            getLogger().warning("データの保存に失敗しました: " + e.getMessage());
+    /**
+     * SQLiteのデータベース（data.db）を開く
+     * データベースが空でdata.ymlがある場合は、data.ymlの内容を移行する。
+     * @return 保存先
+     * @throws IOException 開けなかった場合
+     */
+    private GroupStorage openSqliteStorage() throws IOException {
+        SqliteGroupStorage sqlite = new SqliteGroupStorage(new File(getDataFolder(), "data.db"));
+
+        File yamlFile = new File(getDataFolder(), "data.yml");
+        if (yamlFile.exists() && sqlite.isEmpty()) {
+            try {
+                int count = new YamlGroupStorage(yamlFile, getLogger()).copyTo(sqlite);
+                File migrated = new File(getDataFolder(), "data.yml.migrated");
+                if (yamlFile.renameTo(migrated)) {
+                    getLogger().info("data.yml の" + count + "件をデータベースに移行しました（元のファイルは data.yml.migrated）。");
+                }
+            } catch (IOException e) {
+                sqlite.close();
+                throw e;
+            }
         }
+        return sqlite;
     }
 
-    private void loadGroups() {
-        for (String key : dataConfig.getKeys(false)) {
-            try {
-                UUID uuid = UUID.fromString(key);
-                String group = dataConfig.getString(key);
-                playerGroups.put(uuid, group);
-            } catch (IllegalArgumentException ignored) {}
+    /**
+     * プレイヤーの所属グループを読み込み、オンラインのメンバーに追加する
+     * 通常はログイン前に読み込み済みだが、プラグインの読み込み前からオンラインだった場合などは、ここで読み込む。
+     * @param player プレイヤー
+     */
+    private void loadPlayerGroup(Player player) {
+        UUID uuid = player.getUniqueId();
+        if (!groupRegistry.isLoaded(uuid)) {
+            groupRegistry.load(uuid, groupStore.load(uuid));
         }
+        groupRegistry.online(player);
     }
 
     private void loadConfigFile() {
@@ -508,6 +781,35 @@ public final class ChatJP extends JavaPlugin implements Listener {
                     // デフォルト設定を作成
                     FileConfiguration config = YamlConfiguration.loadConfiguration(configFile);
                     config.set("ably.api-key", "YOUR_ABLY_API_KEY_HERE");
+                    config.set("ably.publish.queue-size", 1000);
+                    config.set("ably.publish.flush-interval-ms", 20);
+                    config.set("ably.publish.max-batch", 50);
+                    config.set("ably.publish.overflow", AblyPublisher.OverflowPolicy.DROP_OLDEST.toString());
+                    config.set("ably.receive.max-per-tick", 100);
+                    config.set("ably.wire-format", ChatEnvelope.Format.JSON.toString());
+                    config.set("ng-words", Arrays.asList(DEFAULT_NG_WORDS));
+                    config.set("ng-words-file", "ngwords.txt");
+                    for (Map.Entry<String, List<String>> code : ShortcodeExpander.defaultCodes().entrySet()) {
+                        config.set("shortcodes." + code.getKey(), code.getValue());
+                    }
+                    config.set("japanize.type", JapanizeType.GOOGLE_IME.toString());
+                    config.set("japanize.dictionary", "dictionary.txt");
+                    config.set("ime.cache.max-size", 1000);
+                    config.set("ime.cache.ttl-seconds", 3600);
+                    config.set("ime.threads", 4);
+                    config.set("ime.queue-size", 256);
+                    config.set("ime.timeout-ms", 500);
+                    config.set("ime.batch.window-ms", 20);
+                    config.set("ime.batch.max-size", 16);
+                    config.set("ime.http.connect-timeout-ms", 3000);
+                    config.set("ime.http.read-timeout-ms", 5000);
+                    config.set("ime.http.max-concurrent", 8);
+                    config.set("data.storage", "yaml");
+                    config.set("data.save-interval-seconds", 5);
+                    config.set("beginner.refresh-seconds", 60);
+                    config.set("metrics.prometheus.file", "");
+                    config.set("metrics.prometheus.interval-seconds", 15);
+                    config.set("metrics.prometheus.port", 0);
                     config.save(configFile);
                     
                     getLogger().warning("config.yml に Ably API キーを設定してください！");
@@ -524,6 +826,85 @@ public final class ChatJP extends JavaPlugin implements Listener {
         if (ablyApiKey.isEmpty() || ablyApiKey.equals("YOUR_ABLY_API_KEY_HERE")) {
             ablyApiKey = null;
         }
+
+        // Ablyへの送信の設定を読み込み
+        ablyPublishQueueSize = config.getInt("ably.publish.queue-size", 1000);
+        ablyPublishFlushIntervalMillis = config.getLong("ably.publish.flush-interval-ms", 20L);
+        ablyPublishMaxBatch = config.getInt("ably.publish.max-batch", 50);
+        ablyPublishOverflow = AblyPublisher.OverflowPolicy.fromID(
+                config.getString("ably.publish.overflow"), AblyPublisher.OverflowPolicy.DROP_OLDEST);
+        ablyReceiveMaxPerTick = config.getInt("ably.receive.max-per-tick", 100);
+        // 以前のバージョンのサーバーはJSON形式しか読めないので、全てのサーバーを更新するまではJSON形式で送信する
+        ablyWireFormat = ChatEnvelope.Format.fromID(config.getString("ably.wire-format"), ChatEnvelope.Format.JSON);
+
+        // NGワードを読み込み
+        loadNGWords(config);
+        loadShortcodes(config);
+
+        // 日本語変換の設定を読み込み
+        japanizeType = JapanizeType.fromID(config.getString("japanize.type"), JapanizeType.GOOGLE_IME);
+        dictionaryFileName = config.getString("japanize.dictionary", "dictionary.txt");
+
+        // IME変換キャッシュの設定を読み込み
+        imeCacheMaxSize = config.getInt("ime.cache.max-size", 1000);
+        imeCacheTtlSeconds = config.getLong("ime.cache.ttl-seconds", 3600L);
+
+        // IME変換スレッドの設定を読み込み
+        imeThreads = config.getInt("ime.threads", 4);
+        imeQueueSize = config.getInt("ime.queue-size", 256);
+        imeTimeoutMillis = config.getLong("ime.timeout-ms", 500L);
+        imeBatchWindowMillis = config.getLong("ime.batch.window-ms", 20L);
+        imeBatchMaxSize = config.getInt("ime.batch.max-size", 16);
+
+        // IME変換のHTTP通信の設定を読み込み
+        imeConnectTimeoutMillis = config.getLong("ime.http.connect-timeout-ms", 3000L);
+        imeReadTimeoutMillis = config.getLong("ime.http.read-timeout-ms", 5000L);
+        imeMaxConcurrentRequests = config.getInt("ime.http.max-concurrent", 8);
+
+        // データの保存先と保存間隔を読み込み
+        dataStorageType = config.getString("data.storage", "yaml");
+        dataSaveIntervalSeconds = config.getLong("data.save-interval-seconds", 5L);
+        beginnerRefreshSeconds = config.getLong("beginner.refresh-seconds", 60L);
+
+        // メトリクスの公開の設定を読み込み（ファイル名が空、ポートが0の場合は公開しない）
+        metricsFileName = config.getString("metrics.prometheus.file", "");
+        metricsIntervalSeconds = config.getLong("metrics.prometheus.interval-seconds", 15L);
+        metricsPort = config.getInt("metrics.prometheus.port", 0);
+    }
+
+    /**
+     * 短縮コードを読み込む（設定がない場合は既定の短縮コードを使う）
+     * @param config 設定
+     */
+    private void loadShortcodes(FileConfiguration config) {
+        if (config.isConfigurationSection("shortcodes")) {
+            shortcodes = ShortcodeExpander.load(config.getConfigurationSection("shortcodes"), getLogger());
+        } else {
+            shortcodes = ShortcodeExpander.of(ShortcodeExpander.defaultCodes());
+        }
+    }
+
+    /**
+     * NGワードを読み込み、フィルターを作り直す
+     * @param config 設定ファイル
+     */
+    private void loadNGWords(FileConfiguration config) {
+        List<String> rules = config.isList("ng-words")
+                ? config.getStringList("ng-words")
+                : Arrays.asList(DEFAULT_NG_WORDS);
+
+        // 単語リストのファイル（なければ使わない）
+        List<String> words = Collections.emptyList();
+        File wordFile = new File(getDataFolder(), config.getString("ng-words-file", "ngwords.txt"));
+        if (wordFile.exists()) {
+            try {
+                words = NGWordFilter.readWordList(wordFile.toPath());
+            } catch (IOException e) {
+                getLogger().warning("NGワードの単語リストの読み込みに失敗しました: " + e.getMessage());
+            }
+        }
+
+        ngWordFilter = new NGWordFilter(rules, words, getLogger());
     }
 
-}
\ No newline at end of file
+}
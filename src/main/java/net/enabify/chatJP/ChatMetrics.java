@@ -0,0 +1,216 @@
+package net.enabify.chatJP;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * チャットの処理の段階ごとの処理時間と件数を集計するクラス
+ * 集計はロックせずに行い、/chatjp stats とPrometheus形式の出力で確認できます。
+ */
+public final class ChatMetrics {
+
+    /**
+     * 処理時間を計測する段階
+     */
+    public enum Stage {
+
+        /** NGワードのマスク */
+        NG_MASK("ng_mask", "NGワード"),
+
+        /** カナ変換 */
+        KANA("kana", "カナ変換"),
+
+        /** GoogleIMEとの通信 */
+        IME("ime", "IME通信"),
+
+        /** Ablyへの送信（キューに入れてから送信が完了するまで） */
+        ABLY_PUBLISH("ably_publish", "Ably送信"),
+
+        /** 他サーバーからのメッセージの配信（受信してから配信するまで） */
+        DELIVERY("delivery", "配信");
+
+        private final String id;
+        private final String label;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        Stage(String id, String label) {
+            this.id = id;
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return id;
+        }
+
+        /**
+         * 表示名を返す
+         * @return 表示名
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * 処理時間を記録する
+         * @param nanos 処理時間（ナノ秒）
+         */
+        public void record(long nanos) {
+            histogram.record(nanos);
+        }
+
+        /**
+         * 開始時刻からの処理時間を記録する
+         * @param startNanos 開始時刻（System.nanoTime()の値）
+         */
+        public void recordSince(long startNanos) {
+            histogram.record(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * 現在の記録の写しを返す
+         * @return 写し
+         */
+        public LatencyHistogram.Snapshot snapshot() {
+            return histogram.snapshot();
+        }
+    }
+
+    /**
+     * 件数を数える項目
+     */
+    public enum Counter {
+
+        /** GoogleIMEへの通信の回数（同時通信数の上限で待ちきれなかったものも含む） */
+        IME_REQUESTS("ime_requests_total", "IME通信"),
+
+        /** GoogleIMEへの通信に失敗した回数 */
+        IME_ERRORS("ime_errors_total", "IME通信の失敗"),
+
+        /** Ablyへの送信に成功したメッセージの数 */
+        ABLY_PUBLISHED("ably_published_total", "Ably送信"),
+
+        /** Ablyへの送信に失敗したメッセージの数（再送したものも含む） */
+        ABLY_ERRORS("ably_errors_total", "Ably送信の失敗"),
+
+        /** 再送しても送信できなかったメッセージの数 */
+        ABLY_FAILED("ably_failed_total", "Ably送信の破棄（再送の上限）"),
+
+        /** 送信キューが一杯で捨てたメッセージの数 */
+        ABLY_DROPPED("ably_dropped_total", "Ably送信の破棄（キューが一杯）"),
+
+        /** 他サーバーから受信したメッセージの数 */
+        ABLY_RECEIVED("ably_received_total", "Ably受信");
+
+        private final String id;
+        private final String label;
+        private final LongAdder adder = new LongAdder();
+
+        Counter(String id, String label) {
+            this.id = id;
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return id;
+        }
+
+        /**
+         * 表示名を返す
+         * @return 表示名
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        public void increment() {
+            adder.increment();
+        }
+
+        public void add(long value) {
+            adder.add(value);
+        }
+
+        public long get() {
+            return adder.sum();
+        }
+    }
+
+    // Prometheusに出力するパーセンタイル
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private ChatMetrics() {
+    }
+
+    /**
+     * 全ての記録を消去する
+     */
+    public static void reset() {
+        for (Stage stage : Stage.values()) {
+            stage.histogram.reset();
+        }
+        for (Counter counter : Counter.values()) {
+            counter.adder.reset();
+        }
+    }
+
+    /**
+     * 失敗した割合を返す
+     * @param errors 失敗した回数
+     * @param total 全体の回数
+     * @return 割合（0から1）、全体が0の場合は0
+     */
+    public static double errorRate(long errors, long total) {
+        return total == 0 ? 0.0 : (double) errors / total;
+    }
+
+    /**
+     * Prometheusのテキスト形式で出力する
+     * @return 出力
+     */
+    public static String toPrometheus() {
+        StringBuilder out = new StringBuilder(2048);
+
+        out.append("# HELP chatjp_stage_seconds Latency of each chat pipeline stage.\n");
+        out.append("# TYPE chatjp_stage_seconds summary\n");
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram.Snapshot snapshot = stage.snapshot();
+            for (double quantile : QUANTILES) {
+                out.append("chatjp_stage_seconds{stage=\"").append(stage.id)
+                        .append("\",quantile=\"").append(quantile).append("\"} ")
+                        .append(seconds(snapshot.percentile(quantile))).append('\n');
+            }
+            out.append("chatjp_stage_seconds_sum{stage=\"").append(stage.id).append("\"} ")
+                    .append(seconds(snapshot.getSum())).append('\n');
+            out.append("chatjp_stage_seconds_count{stage=\"").append(stage.id).append("\"} ")
+                    .append(snapshot.getCount()).append('\n');
+        }
+
+        out.append("# HELP chatjp_stage_max_seconds Maximum latency of each chat pipeline stage.\n");
+        out.append("# TYPE chatjp_stage_max_seconds gauge\n");
+        for (Stage stage : Stage.values()) {
+            out.append("chatjp_stage_max_seconds{stage=\"").append(stage.id).append("\"} ")
+                    .append(seconds(stage.snapshot().getMax())).append('\n');
+        }
+
+        for (Counter counter : Counter.values()) {
+            out.append("# TYPE chatjp_").append(counter.id).append(" counter\n");
+            out.append("chatjp_").append(counter.id).append(' ').append(counter.get()).append('\n');
+        }
+        return out.toString();
+    }
+
+    /**
+     * ナノ秒をミリ秒の文字列にする
+     * @param nanos ナノ秒
+     * @return ミリ秒（小数点以下2桁）
+     */
+    public static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0);
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.6f", nanos / 1_000_000_000.0);
+    }
+}
@@ -0,0 +1,158 @@
+package net.enabify.chatJP;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 変換結果をキャッシュするLRUキャッシュ
+ * 件数の上限と有効期限（TTL）の両方で制限され、ヒット・ミス・追い出しの回数を記録します。
+ */
+public class ConversionCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * コンストラクタ
+     * @param maxSize 保持する最大件数（0以下の場合はキャッシュしない）
+     * @param ttlMillis 有効期限（ミリ秒、0以下の場合は無期限）
+     */
+    public ConversionCache(int maxSize, long ttlMillis) {
+        this.maxSize = Math.max(0, maxSize);
+        this.ttlNanos = ttlMillis > 0 ? ttlMillis * 1_000_000L : 0L;
+        // アクセス順で並べ、最も長く使われていないエントリを先頭に置く
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > ConversionCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * キャッシュから変換結果を取得する
+     * @param key 変換元（ひらがな）
+     * @return 変換結果、存在しないか期限切れの場合はnull
+     */
+    public String get(String key) {
+        if (maxSize == 0) {
+            misses.increment();
+            return null;
+        }
+
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (!isExpired(entry, System.nanoTime())) {
+                    hits.increment();
+                    return entry.value;
+                }
+                entries.remove(key);
+                evictions.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * 変換結果をキャッシュに登録する
+     * @param key 変換元（ひらがな）
+     * @param value 変換結果
+     */
+    public void put(String key, String value) {
+        if (maxSize == 0 || key == null || value == null) {
+            return;
+        }
+
+        synchronized (entries) {
+            entries.put(key, new Entry(value, System.nanoTime()));
+        }
+    }
+
+    /**
+     * 期限切れのエントリを削除する
+     */
+    public void purgeExpired() {
+        if (ttlNanos == 0) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                if (isExpired(it.next(), now)) {
+                    it.remove();
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * キャッシュを空にする（統計はリセットしない）
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * ヒット率を返す
+     * @return 0.0～1.0のヒット率（まだ参照がない場合は0.0）
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return ttlNanos > 0 && now - entry.createdAt > ttlNanos;
+    }
+
+    private static final class Entry {
+        private final String value;
+        private final long createdAt;
+
+        private Entry(String value, long createdAt) {
+            this.value = value;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package net.enabify.chatJP;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * カナ変換後の文字列を漢字変換するエンジン
+ * JapanizeTypeごとに実装を切り替えて使用します。
+ */
+public interface Converter {
+
+    /**
+     * かな文字列を変換する
+     * @param kana 変換元（ひらがな）
+     * @return 変換後の文字列、失敗した場合は空文字
+     */
+    String conv(String kana);
+
+    /**
+     * かな文字列を非同期に変換する。
+     * 既定では呼び出し元のスレッドで変換し、完了したFutureを返す。
+     * @param kana 変換元（ひらがな）
+     * @return 変換後の文字列を返すFuture
+     */
+    default CompletableFuture<String> convAsync(String kana) {
+        return CompletableFuture.completedFuture(conv(kana));
+    }
+
+    /**
+     * 使用しているスレッドなどを解放する
+     */
+    default void shutdown() {
+    }
+}
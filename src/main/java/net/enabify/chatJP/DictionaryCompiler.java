@@ -0,0 +1,262 @@
+package net.enabify.chatJP;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * かな漢字変換辞書のテキストファイルを、ダブル配列トライのバイナリ形式に変換するツール
+ * 変換したファイルは {@link MappedDictionary} でメモリマップして読み込みます。
+ * <pre>
+ * java -cp ChatJP.jar net.enabify.chatJP.DictionaryCompiler dictionary.txt dictionary.dat
+ * </pre>
+ */
+public class DictionaryCompiler {
+
+    /** ファイルの先頭に置く識別子（"CJDA"） */
+    static final int MAGIC = 0x434A4441;
+
+    /** ファイル形式のバージョン（2: コストを0からDictionaryReader.MAX_COSTの範囲にそろえた） */
+    static final int VERSION = 2;
+
+    /** 文字コード表の大きさ（UTF-16の全コードユニット） */
+    static final int CODE_TABLE_SIZE = 65536;
+
+    // 未使用の要素を表すcheckの値
+    private static final int FREE = -1;
+
+    private final String[] readings;
+    private int[] base;
+    private int[] check;
+    private int size;
+    private int nextFree = 1;
+    private final char[] codeOf = new char[CODE_TABLE_SIZE];
+
+    private DictionaryCompiler(String[] readings) {
+        this.readings = readings;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("使い方: DictionaryCompiler <辞書テキスト> <出力ファイル>");
+            System.exit(1);
+            return;
+        }
+
+        Path source = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+        int count = compile(source, output);
+        System.out.println(source + " を " + output + " に変換しました（" + count + "語）");
+    }
+
+    /**
+     * テキストの辞書に対応するバイナリ辞書のファイルを返す（拡張子を.datに置き換える）
+     * @param source テキストの辞書
+     * @return バイナリ辞書のファイル
+     */
+    public static File compiledFileFor(File source) {
+        String name = source.getName();
+        if (name.endsWith(".dat")) {
+            return source;
+        }
+        int dot = name.lastIndexOf('.');
+        String stem = dot > 0 ? name.substring(0, dot) : name;
+        return new File(source.getParentFile(), stem + ".dat");
+    }
+
+    /**
+     * テキストの辞書を読み込み、バイナリ辞書を書き出す
+     * @param source テキストの辞書
+     * @param output 出力ファイル
+     * @return 登録した見出し語の数
+     * @throws IOException 読み書きに失敗した場合
+     */
+    public static int compile(Path source, Path output) throws IOException {
+
+        List<DictionaryReader.Entry> entries = DictionaryReader.read(source);
+        String[] readings = new String[entries.size()];
+        for (int i = 0; i < readings.length; i++) {
+            readings[i] = entries.get(i).reading;
+        }
+
+        DictionaryCompiler compiler = new DictionaryCompiler(readings);
+        compiler.build();
+
+        // 途中で失敗しても既存の辞書を壊さないよう、一時ファイルに書いてから置き換える
+        Path parent = output.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, output.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            compiler.write(out, entries);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        return entries.size();
+    }
+
+    private void build() {
+
+        // 見出し語に現れる文字に、1から順に番号を振る（0は終端を表す）
+        int codes = 0;
+        for (String reading : readings) {
+            for (int i = 0; i < reading.length(); i++) {
+                char c = reading.charAt(i);
+                if (codeOf[c] == 0) {
+                    codeOf[c] = (char) ++codes;
+                }
+            }
+        }
+
+        int capacity = Math.max(1024, readings.length * 4);
+        base = new int[capacity];
+        check = new int[capacity];
+        Arrays.fill(check, FREE);
+
+        // 根はcheckを自分自身にして使用中にする
+        check[0] = 0;
+        size = 1;
+        if (readings.length > 0) {
+            insert(0, 0, readings.length, 0);
+        }
+    }
+
+    // nodeの子ノードを、readings[lo..hi)のdepth文字目から作る
+    private void insert(int node, int lo, int hi, int depth) {
+
+        // 子ノードの文字番号と、それぞれが受け持つ範囲を集める
+        int[] childCodes = new int[hi - lo + 1];
+        int[] childLo = new int[hi - lo + 1];
+        int[] childHi = new int[hi - lo + 1];
+        int children = 0;
+
+        int i = lo;
+        if (readings[i].length() == depth) {
+            // 読みがちょうど終わるエントリは、昇順なので範囲の先頭にある
+            childCodes[children] = 0;
+            childLo[children] = i;
+            childHi[children] = i + 1;
+            children++;
+            i++;
+        }
+        while (i < hi) {
+            char c = readings[i].charAt(depth);
+            int j = i + 1;
+            while (j < hi && readings[j].charAt(depth) == c) {
+                j++;
+            }
+            childCodes[children] = codeOf[c];
+            childLo[children] = i;
+            childHi[children] = j;
+            children++;
+            i = j;
+        }
+
+        int b = findBase(childCodes, children);
+        base[node] = b;
+
+        // 子ノードの位置を先に確保してから、それぞれの子孫を作る
+        for (int k = 0; k < children; k++) {
+            int t = b + childCodes[k];
+            check[t] = node;
+            size = Math.max(size, t + 1);
+        }
+        for (int k = 0; k < children; k++) {
+            int t = b + childCodes[k];
+            if (childCodes[k] == 0) {
+                // 終端ノードのbaseにはエントリ番号を負の値で入れる
+                base[t] = -(childLo[k] + 1);
+            } else {
+                insert(t, childLo[k], childHi[k], depth + 1);
+            }
+        }
+    }
+
+    // 全ての子ノードを置ける位置を探す
+    private int findBase(int[] codes, int count) {
+        while (nextFree < check.length && check[nextFree] != FREE) {
+            nextFree++;
+        }
+
+        // 文字番号は出現順に振っているので、文字順に並んだ子ノードの最後が最大とは限らない
+        int first = codes[0];
+        int maxCode = first;
+        for (int k = 1; k < count; k++) {
+            maxCode = Math.max(maxCode, codes[k]);
+        }
+
+        int pos = Math.max(nextFree, first + 1);
+        while (true) {
+            int b = pos - first;
+            ensureCapacity(b + maxCode + 1);
+            boolean fits = true;
+            for (int k = 0; fits && k < count; k++) {
+                fits = check[b + codes[k]] == FREE;
+            }
+            if (fits) {
+                return b;
+            }
+            pos++;
+            while (pos < check.length && check[pos] != FREE) {
+                pos++;
+            }
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= check.length) {
+            return;
+        }
+        int capacity = Math.max(required, check.length * 2);
+        int old = check.length;
+        base = Arrays.copyOf(base, capacity);
+        check = Arrays.copyOf(check, capacity);
+        Arrays.fill(check, old, capacity, FREE);
+    }
+
+    private void write(DataOutputStream out, List<DictionaryReader.Entry> entries) throws IOException {
+
+        int chars = 0;
+        for (DictionaryReader.Entry entry : entries) {
+            chars += entry.candidate.length();
+        }
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(size);
+        out.writeInt(entries.size());
+        out.writeInt(chars);
+
+        for (int c = 0; c < CODE_TABLE_SIZE; c++) {
+            out.writeChar(codeOf[c]);
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeInt(base[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeInt(check[i]);
+        }
+        for (DictionaryReader.Entry entry : entries) {
+            out.writeInt(entry.cost);
+        }
+        int offset = 0;
+        for (DictionaryReader.Entry entry : entries) {
+            out.writeInt(offset);
+            offset += entry.candidate.length();
+        }
+        out.writeInt(offset);
+        for (DictionaryReader.Entry entry : entries) {
+            out.writeChars(entry.candidate);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package net.enabify.chatJP;
+
+import java.util.Arrays;
+
+/**
+ * ローカルの辞書を使って、通信せずに漢字変換するエンジン
+ * 辞書に一致する見出し語の組み合わせのうち、コストの合計が最小になる分割を選びます（Viterbi）。
+ */
+public class DictionaryConverter implements Converter {
+
+    // 辞書にない文字を、そのまま出力する場合のコスト（1文字あたり）
+    // どの見出し語のコストよりも大きくし、1文字の見出し語も含めて辞書に一致する読みを優先する
+    private static final int UNKNOWN_CHAR_COST = DictionaryReader.MAX_COST + 1000;
+
+    // 1か所から探す見出し語の最大数
+    private static final int MAX_MATCHES = 64;
+
+    private final KanaDictionary dictionary;
+
+    /**
+     * コンストラクタ
+     * @param dictionary 辞書
+     */
+    public DictionaryConverter(KanaDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * 使用している辞書を返す
+     * @return 辞書
+     */
+    public KanaDictionary getDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public String conv(String kana) {
+
+        int length = kana.length();
+        if (length == 0) {
+            return "";
+        }
+
+        // best[i]: 先頭からi文字目までを変換する最小コスト
+        // prev[i], entryAt[i]: 最小コストとなる直前の位置と、使ったエントリ（-1は辞書にない文字）
+        long[] best = new long[length + 1];
+        int[] prev = new int[length + 1];
+        int[] entryAt = new int[length + 1];
+        Arrays.fill(best, Long.MAX_VALUE);
+        best[0] = 0;
+
+        int[] lengths = new int[MAX_MATCHES];
+        int[] entries = new int[MAX_MATCHES];
+
+        for (int i = 0; i < length; i++) {
+            if (best[i] == Long.MAX_VALUE) {
+                continue;
+            }
+
+            // 辞書にない文字として1文字進む
+            relax(best, prev, entryAt, i, i + 1, -1, best[i] + UNKNOWN_CHAR_COST);
+
+            // 辞書の見出し語で進む
+            int found = dictionary.commonPrefixSearch(kana, i, lengths, entries);
+            for (int k = 0; k < found; k++) {
+                relax(best, prev, entryAt, i, i + lengths[k], entries[k],
+                        best[i] + dictionary.cost(entries[k]));
+            }
+        }
+
+        // 末尾から辿って、分割の境界を求める
+        int segments = 0;
+        int[] path = new int[length + 1];
+        for (int pos = length; pos > 0; pos = prev[pos]) {
+            path[segments++] = pos;
+        }
+
+        StringBuilder out = new StringBuilder(length * 2);
+        for (int s = segments - 1; s >= 0; s--) {
+            int end = path[s];
+            int start = prev[end];
+            if (entryAt[end] >= 0) {
+                dictionary.appendCandidate(entryAt[end], out);
+            } else {
+                out.append(kana, start, end);
+            }
+        }
+        return out.toString();
+    }
+
+    private static void relax(long[] best, int[] prev, int[] entryAt, int from, int to, int entry, long cost) {
+        if (cost < best[to]) {
+            best[to] = cost;
+            prev[to] = from;
+            entryAt[to] = entry;
+        }
+    }
+}
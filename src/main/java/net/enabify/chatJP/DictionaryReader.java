@@ -0,0 +1,138 @@
+package net.enabify.chatJP;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * かな漢字変換辞書のテキストファイルを読み込むクラス
+ * 以下の形式に対応します（文字コードはUTF-8）。
+ * <ul>
+ * <li>SKK形式: {@code よみ /候補1/候補2/}（送りありエントリは無視）</li>
+ * <li>Mozc形式: {@code よみ<TAB>左ID<TAB>右ID<TAB>コスト<TAB>候補}</li>
+ * <li>TSV形式: {@code よみ<TAB>候補}</li>
+ * </ul>
+ * 同じ読みが複数ある場合は、コストが最も小さい候補だけを残します。
+ * コストは形式によらず0から{@link #MAX_COST}の範囲にそろえます。
+ */
+public class DictionaryReader {
+
+    /** 候補のコストの上限 */
+    public static final int MAX_COST = 2000;
+
+    /** コストが指定されていない候補のコスト */
+    public static final int DEFAULT_COST = 1000;
+
+    // Mozc形式のコストのうち、MAX_COSTに対応させる値（これより大きいものはMAX_COSTにする）
+    private static final int MOZC_MAX_COST = 10000;
+
+    // SKK形式で2番目以降の候補に加えるコスト
+    private static final int RANK_PENALTY = 100;
+
+    /**
+     * 辞書のエントリ
+     */
+    public static final class Entry {
+        public final String reading;
+        public final String candidate;
+        public final int cost;
+
+        public Entry(String reading, String candidate, int cost) {
+            this.reading = reading;
+            this.candidate = candidate;
+            this.cost = cost;
+        }
+    }
+
+    /**
+     * 辞書ファイルを読み込む
+     * @param file 辞書ファイル
+     * @return 読みの昇順に並んだエントリ（読みの重複なし）
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public static List<Entry> read(Path file) throws IOException {
+
+        Map<String, Entry> entries = new TreeMap<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith(";") || line.startsWith("#")) {
+                    continue;
+                }
+
+                if (line.indexOf('\t') != -1) {
+                    parseTsv(line, entries);
+                } else {
+                    parseSkk(line, entries);
+                }
+            }
+        }
+
+        return new ArrayList<>(entries.values());
+    }
+
+    private static void parseTsv(String line, Map<String, Entry> entries) {
+        String[] columns = line.split("\t");
+        if (columns.length >= 5) {
+            // Mozc形式
+            try {
+                put(entries, columns[0], columns[4], scaleMozcCost(Integer.parseInt(columns[3].trim())));
+            } catch (NumberFormatException ignored) {}
+        } else if (columns.length >= 2) {
+            put(entries, columns[0], columns[1], DEFAULT_COST);
+        }
+    }
+
+    private static void parseSkk(String line, Map<String, Entry> entries) {
+        int space = line.indexOf(" /");
+        if (space <= 0) {
+            return;
+        }
+
+        String reading = line.substring(0, space);
+        // 送りありエントリ（よみの末尾が英字）や接頭辞・接尾辞は対象外
+        char last = reading.charAt(reading.length() - 1);
+        if ((last >= 'a' && last <= 'z') || reading.indexOf('>') != -1) {
+            return;
+        }
+
+        String[] candidates = line.substring(space + 2).split("/");
+        int rank = 0;
+        for (String candidate : candidates) {
+            // 注釈を除く
+            int annotation = candidate.indexOf(';');
+            if (annotation != -1) {
+                candidate = candidate.substring(0, annotation);
+            }
+            // Lisp式の候補は扱わない
+            if (candidate.isEmpty() || candidate.startsWith("(")) {
+                continue;
+            }
+            put(entries, reading, candidate, Math.min(MAX_COST, DEFAULT_COST + rank * RANK_PENALTY));
+            rank++;
+        }
+    }
+
+    // Mozc形式のコスト（数千程度）を、0からMAX_COSTの範囲にする
+    static int scaleMozcCost(int cost) {
+        int clamped = Math.max(0, Math.min(MOZC_MAX_COST, cost));
+        return clamped * MAX_COST / MOZC_MAX_COST;
+    }
+
+    private static void put(Map<String, Entry> entries, String reading, String candidate, int cost) {
+        if (reading.isEmpty() || candidate.isEmpty()) {
+            return;
+        }
+        Entry current = entries.get(reading);
+        if (current == null || cost < current.cost) {
+            entries.put(reading, new Entry(reading, candidate, cost));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package net.enabify.chatJP;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.audience.ForwardingAudience;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.util.List;
+
+/**
+ * Foliaのリージョンごとのスケジューラーでタスクを実行するクラス
+ * プレイヤーへのタスクはそのプレイヤーのエンティティスケジューラーで実行するので、
+ * リージョンごとに並列に処理されます。
+ */
+public class FoliaPlatformScheduler implements PlatformScheduler {
+
+    private final Plugin plugin;
+
+    public FoliaPlatformScheduler(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public Task runRepeating(Runnable task, long periodTicks) {
+        ScheduledTask scheduledTask = Bukkit.getGlobalRegionScheduler()
+                .runAtFixedRate(plugin, t -> task.run(), 1L, Math.max(1L, periodTicks));
+        return scheduledTask::cancel;
+    }
+
+    @Override
+    public void runForPlayer(Player player, Runnable task) {
+        // プレイヤーがログアウトしていた場合（retiredの場合）は何もしない
+        player.getScheduler().execute(plugin, task, null, 1L);
+    }
+
+    @Override
+    public void sendMessages(Audience audience, List<Component> messages) {
+        if (audience instanceof Player) {
+            Player player = (Player) audience;
+            runForPlayer(player, () -> {
+                for (Component message : messages) {
+                    player.sendMessage(message);
+                }
+            });
+        } else if (audience instanceof ForwardingAudience) {
+            // グループやサーバー全体は、含まれるプレイヤーごとに分けて送信する
+            for (Audience child : ((ForwardingAudience) audience).audiences()) {
+                sendMessages(child, messages);
+            }
+        } else {
+            // コンソールなどは、どのスレッドからでも送信できる
+            for (Component message : messages) {
+                audience.sendMessage(message);
+            }
+        }
+    }
+
+    @Override
+    public void runAsync(Runnable task) {
+        Bukkit.getAsyncScheduler().runNow(plugin, t -> task.run());
+    }
+
+    @Override
+    public void cancelAll() {
+        Bukkit.getGlobalRegionScheduler().cancelTasks(plugin);
+        Bukkit.getAsyncScheduler().cancelTasks(plugin);
+    }
+}
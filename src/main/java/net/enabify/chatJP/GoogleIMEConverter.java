@@ -0,0 +1,75 @@
+package net.enabify.chatJP;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * GoogleIMEで漢字変換するエンジン
+ * 通信は専用のスレッドで行い、短時間に届いた要求はまとめて送信します。
+ */
+public class GoogleIMEConverter implements Converter {
+
+    private final ThreadPoolExecutor executor;
+    private final IMEBatcher batcher;
+
+    /**
+     * コンストラクタ
+     * @param threads IME変換に使う最大スレッド数
+     * @param queueSize 変換待ちキューの最大長
+     * @param batchWindowMillis IME変換の要求をまとめる待ち時間（ミリ秒）
+     * @param batchMaxSize 1回の通信にまとめる最大件数
+     */
+    public GoogleIMEConverter(int threads, int queueSize, long batchWindowMillis, int batchMaxSize) {
+        int poolSize = Math.max(1, threads);
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+                new DaemonThreadFactory());
+        this.executor.allowCoreThreadTimeOut(true);
+        this.batcher = new IMEBatcher(executor, batchWindowMillis, batchMaxSize);
+    }
+
+    @Override
+    public String conv(String kana) {
+        return IMEConverter.convByGoogleIME(kana);
+    }
+
+    @Override
+    public CompletableFuture<String> convAsync(String kana) {
+
+        if (kana.isEmpty()) {
+            return CompletableFuture.completedFuture("");
+        }
+
+        // キャッシュにある場合は通信しない
+        String cached = IMEConverter.getCache().get(kana);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        // 変換待ちが溢れている場合や通信に失敗した場合は、空文字で完了する
+        return batcher.submit(kana);
+    }
+
+    @Override
+    public void shutdown() {
+        batcher.shutdown();
+        executor.shutdownNow();
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "ChatJP-IME-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
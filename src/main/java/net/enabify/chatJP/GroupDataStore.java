@@ -0,0 +1,139 @@
+package net.enabify.chatJP;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * プレイヤーの所属グループを保存先（{@link GroupStorage}）に書き込むクラス
+ * 変更はすぐには書き込まず、変更されたプレイヤーだけを記録しておき、
+ * 一定間隔でバックグラウンドのスレッドからまとめて書き込みます（ライトビハインド）。
+ */
+public class GroupDataStore {
+
+    // グループからの退出を表す値（ConcurrentHashMapにはnullを入れられないため）
+    private static final String REMOVED = "";
+
+    private final GroupStorage storage;
+    private final Logger logger;
+    private final ConcurrentHashMap<UUID, String> dirty = new ConcurrentHashMap<>();
+    private ScheduledExecutorService executor;
+
+    /**
+     * コンストラクタ
+     * @param storage 保存先
+     * @param logger ロガー
+     */
+    public GroupDataStore(GroupStorage storage, Logger logger) {
+        this.storage = storage;
+        this.logger = logger;
+    }
+
+    /**
+     * プレイヤーの所属グループを読み込む（まだ書き込まれていない変更も反映される）
+     * @param uuid プレイヤーのUUID
+     * @return グループID、所属していないか読み込みに失敗した場合はnull
+     */
+    public String load(UUID uuid) {
+        String pending = dirty.get(uuid);
+        if (pending != null) {
+            return pending.equals(REMOVED) ? null : pending;
+        }
+
+        try {
+            return storage.load(uuid);
+        } catch (IOException e) {
+            logger.warning("所属グループの読み込みに失敗しました: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 一定間隔での書き込みを開始する
+     * @param intervalMillis 書き込みの間隔（ミリ秒）
+     */
+    public synchronized void start(long intervalMillis) {
+        if (executor != null) {
+            return;
+        }
+        long interval = Math.max(100L, intervalMillis);
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ChatJP-DataStore");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * プレイヤーの所属グループを変更する（次の書き込みで保存される）
+     * 同じプレイヤーの変更が書き込みまでに何度あっても、最後の値だけが書き込まれる。
+     * @param uuid プレイヤーのUUID
+     * @param groupId グループID、nullの場合は退出
+     */
+    public void set(UUID uuid, String groupId) {
+        dirty.put(uuid, groupId == null ? REMOVED : groupId);
+    }
+
+    /**
+     * 変更を保存先に書き込む
+     */
+    public synchronized void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        // 書き込む変更を取り出す（取り出した後の変更は次の書き込みに回る）
+        // 書き込みが終わるまでは、読み込みで古い値が見えないよう変更を残しておく
+        Map<UUID, String> pending = new HashMap<>(dirty);
+        Map<UUID, String> changes = new HashMap<>();
+        for (Map.Entry<UUID, String> entry : pending.entrySet()) {
+            changes.put(entry.getKey(), entry.getValue().equals(REMOVED) ? null : entry.getValue());
+        }
+
+        try {
+            storage.save(changes);
+        } catch (IOException e) {
+            // 失敗した変更は、次の書き込みで再度試す
+            logger.warning("データの保存に失敗しました: " + e.getMessage());
+            return;
+        }
+
+        // 書き込み中に新しく変更されたものは残す
+        for (Map.Entry<UUID, String> entry : pending.entrySet()) {
+            dirty.remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * 一定間隔での書き込みを停止し、残っている変更を書き込んで保存先を閉じる
+     */
+    public void shutdown() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = executor;
+            executor = null;
+        }
+        if (current != null) {
+            current.shutdown();
+            try {
+                current.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+
+        try {
+            storage.close();
+        } catch (IOException e) {
+            logger.warning("保存先を閉じるのに失敗しました: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package net.enabify.chatJP;
+
+import net.kyori.adventure.audience.Audience;
+import org.bukkit.entity.Player;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * グループごとのオンラインのメンバーを保持する索引
+ * 参加・退出・グループ変更のたびに更新し、メッセージの配信先や
+ * グループが空になったかどうかを、全プレイヤーを調べずに求められるようにします。
+ * グループごとに、オンラインのメンバー全員を表すAudienceも保持しています。
+ */
+public class GroupMembers {
+
+    /**
+     * グループにオンラインのメンバーが現れた・いなくなったことを受け取る
+     * 通知はメンバーの追加・削除と同じ順序で1つずつ呼び出されます。
+     * 索引のロックを保持していない状態で呼び出すので、通知の中から索引を操作しても構いません。
+     */
+    public interface Listener {
+        /**
+         * グループに最初のメンバーが追加された
+         * @param groupId グループID
+         */
+        void activated(String groupId);
+
+        /**
+         * グループの最後のメンバーが取り除かれた
+         * @param groupId グループID
+         */
+        void deactivated(String groupId);
+    }
+
+    private final ConcurrentHashMap<String, Group> members = new ConcurrentHashMap<>();
+    private final Listener listener;
+
+    // まだ呼び出していない通知（変更と同じロックの中で追加するので、変更と同じ順序になる）
+    private final ConcurrentLinkedQueue<Runnable> notifications = new ConcurrentLinkedQueue<>();
+    // 通知を呼び出すよう求められた回数（0でないときは、いずれかのスレッドが呼び出し中）
+    private final AtomicInteger dispatchRequests = new AtomicInteger();
+
+    /**
+     * コンストラクタ
+     * @param listener グループの状態の変化を受け取るリスナー（不要ならnull）
+     */
+    public GroupMembers(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * グループにプレイヤーを追加する
+     * @param groupId グループID
+     * @param player プレイヤー
+     * @return グループの最初のメンバーになった場合true
+     */
+    public boolean add(String groupId, Player player) {
+        boolean first = addMember(groupId, player);
+        dispatchNotifications();
+        return first;
+    }
+
+    /**
+     * グループにプレイヤーを追加する（リスナーへの通知は{@link #dispatchNotifications()}まで呼び出さない）
+     * @param groupId グループID
+     * @param player プレイヤー
+     * @return グループの最初のメンバーになった場合true
+     */
+    boolean addMember(String groupId, Player player) {
+        boolean[] first = new boolean[1];
+        members.compute(groupId, (id, group) -> {
+            if (group == null) {
+                group = new Group();
+            }
+            first[0] = group.players.isEmpty();
+            group.players.put(player.getUniqueId(), player);
+            if (first[0] && listener != null) {
+                notifications.add(() -> listener.activated(groupId));
+            }
+            return group;
+        });
+        return first[0];
+    }
+
+    /**
+     * グループからプレイヤーを取り除く
+     * @param groupId グループID
+     * @param uuid プレイヤーのUUID
+     * @return グループにメンバーがいなくなった場合true
+     */
+    public boolean remove(String groupId, UUID uuid) {
+        boolean emptied = removeMember(groupId, uuid);
+        dispatchNotifications();
+        return emptied;
+    }
+
+    /**
+     * グループからプレイヤーを取り除く（リスナーへの通知は{@link #dispatchNotifications()}まで呼び出さない）
+     * @param groupId グループID
+     * @param uuid プレイヤーのUUID
+     * @return グループにメンバーがいなくなった場合true
+     */
+    boolean removeMember(String groupId, UUID uuid) {
+        boolean[] emptied = new boolean[1];
+        members.computeIfPresent(groupId, (id, group) -> {
+            if (group.players.remove(uuid) == null) {
+                return group;
+            }
+            emptied[0] = group.players.isEmpty();
+            if (emptied[0] && listener != null) {
+                notifications.add(() -> listener.deactivated(groupId));
+            }
+            return emptied[0] ? null : group;
+        });
+        return emptied[0];
+    }
+
+    /**
+     * たまっている通知をリスナーに渡す（索引やレジストリのロックを保持していない状態で呼び出す）
+     * 他のスレッドが通知を呼び出し中の場合は、そのスレッドが続けて呼び出すので、すぐに戻る。
+     */
+    void dispatchNotifications() {
+        if (dispatchRequests.getAndIncrement() != 0) {
+            return;
+        }
+
+        RuntimeException failure = null;
+        int requests = 1;
+        do {
+            Runnable notification;
+            while ((notification = notifications.poll()) != null) {
+                try {
+                    notification.run();
+                } catch (RuntimeException e) {
+                    // 後の通知が止まらないよう、最後まで呼び出してから投げる
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+            requests = dispatchRequests.addAndGet(-requests);
+        } while (requests != 0);
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * グループのオンラインのメンバーを返す
+     * @param groupId グループID
+     * @return メンバー（変更不可）
+     */
+    public Collection<Player> get(String groupId) {
+        Group group = members.get(groupId);
+        return group == null ? Collections.emptyList() : Collections.unmodifiableCollection(group.players.values());
+    }
+
+    /**
+     * グループのオンラインのメンバー全員を表すAudienceを返す
+     * 送信のたびに、その時点のメンバーに送られる。
+     * @param groupId グループID
+     * @return Audience、メンバーがいない場合は空のAudience
+     */
+    public Audience audience(String groupId) {
+        Group group = members.get(groupId);
+        return group == null ? Audience.empty() : group.audience;
+    }
+
+    /**
+     * グループにオンラインのメンバーがいるか
+     * @param groupId グループID
+     * @return メンバーがいる場合true
+     */
+    public boolean contains(String groupId) {
+        return members.containsKey(groupId);
+    }
+
+    /**
+     * オンラインのメンバーがいるグループの一覧を返す
+     * @return グループIDの一覧
+     */
+    public Collection<String> getGroups() {
+        return Collections.unmodifiableSet(members.keySet());
+    }
+
+    /**
+     * 全てのメンバーを取り除く
+     */
+    public void clear() {
+        members.clear();
+    }
+
+    // グループのメンバーと、メンバー全員を表すAudience
+    private static final class Group {
+        final Map<UUID, Player> players = new ConcurrentHashMap<>();
+        final Audience audience = Audience.audience(players.values());
+    }
+}
@@ -0,0 +1,135 @@
+package net.enabify.chatJP;
+
+import org.bukkit.entity.Player;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * プレイヤーの所属グループを管理するレジストリ
+ * 所属グループの参照はロックせずに行え、グループの変更とオンラインのメンバーの索引の更新は
+ * プレイヤーごとに不可分に行われます。どのスレッドから呼び出しても安全です。
+ * グループの状態の変化の通知は、更新を終えてロックを外してから呼び出します。
+ * 保持するのはログイン中（またはログイン処理中）のプレイヤーだけで、保存先が正となります。
+ */
+public class GroupRegistry {
+
+    // 読み込み済みで、グループに所属していないことを表す値
+    private static final String NONE = "";
+
+    private final ConcurrentHashMap<UUID, String> groups = new ConcurrentHashMap<>();
+    private final GroupMembers members;
+
+    /**
+     * コンストラクタ
+     * @param listener グループにオンラインのメンバーが現れた・いなくなったことを受け取るリスナー
+     */
+    public GroupRegistry(GroupMembers.Listener listener) {
+        this.members = new GroupMembers(listener);
+    }
+
+    /**
+     * プレイヤーの所属グループを返す
+     * @param uuid プレイヤーのUUID
+     * @return グループID、所属していないか読み込まれていない場合はnull
+     */
+    public String getGroup(UUID uuid) {
+        return toGroup(groups.get(uuid));
+    }
+
+    /**
+     * プレイヤーの所属グループが読み込み済みか
+     * @param uuid プレイヤーのUUID
+     * @return 読み込み済みの場合true
+     */
+    public boolean isLoaded(UUID uuid) {
+        return groups.containsKey(uuid);
+    }
+
+    /**
+     * グループごとのオンラインのメンバーの索引を返す
+     * @return 索引
+     */
+    public GroupMembers getMembers() {
+        return members;
+    }
+
+    /**
+     * 保存されていた所属グループを登録する（オンラインのメンバーには追加しない）
+     * 既に登録されている場合は、より新しい値なので変更しない。
+     * @param uuid プレイヤーのUUID
+     * @param groupId グループID、所属していない場合はnull
+     */
+    public void load(UUID uuid, String groupId) {
+        groups.putIfAbsent(uuid, groupId == null ? NONE : groupId);
+    }
+
+    /**
+     * オンラインのプレイヤーの所属グループを変更する
+     * @param player プレイヤー
+     * @param groupId 新しいグループID、nullの場合はグループから退出する
+     * @return 元のグループID、所属していなかった場合はnull
+     */
+    public String setGroup(Player player, String groupId) {
+        UUID uuid = player.getUniqueId();
+        String[] old = new String[1];
+        groups.compute(uuid, (key, current) -> {
+            old[0] = toGroup(current);
+            if (old[0] != null && !old[0].equals(groupId)) {
+                members.removeMember(old[0], uuid);
+            }
+            if (groupId != null) {
+                members.addMember(groupId, player);
+            }
+            return groupId == null ? NONE : groupId;
+        });
+        members.dispatchNotifications();
+        return old[0];
+    }
+
+    /**
+     * プレイヤーがオンラインになったときに、所属グループのメンバーに追加する
+     * @param player プレイヤー
+     * @return 所属グループID、所属していない場合はnull
+     */
+    public String online(Player player) {
+        String groupId = groups.computeIfPresent(player.getUniqueId(), (key, current) -> {
+            if (!current.equals(NONE)) {
+                members.addMember(current, player);
+            }
+            return current;
+        });
+        members.dispatchNotifications();
+        return toGroup(groupId);
+    }
+
+    /**
+     * プレイヤーがオフラインになったときに、所属グループのメンバーから取り除き、所属グループを破棄する
+     * @param uuid プレイヤーのUUID
+     * @return 所属グループID、所属していない場合はnull
+     */
+    public String offline(UUID uuid) {
+        String[] old = new String[1];
+        groups.computeIfPresent(uuid, (key, groupId) -> {
+            old[0] = toGroup(groupId);
+            if (old[0] != null) {
+                members.removeMember(old[0], uuid);
+            }
+            return null;
+        });
+        members.dispatchNotifications();
+        return old[0];
+    }
+
+    /**
+     * 保持しているプレイヤーの数を返す
+     * @return プレイヤーの数
+     */
+    public int size() {
+        return groups.size();
+    }
+
+    private static String toGroup(String value) {
+        return value == null || value.equals(NONE) ? null : value;
+    }
+}
@@ -0,0 +1,34 @@
+package net.enabify.chatJP;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * プレイヤーの所属グループの保存先
+ * 書き込みは {@link GroupDataStore} がまとめて行うので、実装はスレッドセーフであれば十分です。
+ */
+public interface GroupStorage {
+
+    /**
+     * プレイヤーの所属グループを読み込む
+     * @param uuid プレイヤーのUUID
+     * @return グループID、所属していない場合はnull
+     * @throws IOException 読み込みに失敗した場合
+     */
+    String load(UUID uuid) throws IOException;
+
+    /**
+     * 所属グループの変更をまとめて書き込む
+     * @param changes プレイヤーのUUIDと新しいグループID（nullの場合は退出）
+     * @throws IOException 書き込みに失敗した場合
+     */
+    void save(Map<UUID, String> changes) throws IOException;
+
+    /**
+     * 保存先を閉じる
+     * @throws IOException 閉じるのに失敗した場合
+     */
+    default void close() throws IOException {
+    }
+}
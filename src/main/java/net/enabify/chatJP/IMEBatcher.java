@@ -0,0 +1,168 @@
+package net.enabify.chatJP;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GoogleIMEへの変換要求をまとめて送信するクラス
+ * 短い時間内に届いた要求を1回の通信にまとめ、同じ文字列の変換中の要求は1つのFutureを共有します。
+ */
+public class IMEBatcher {
+
+    // 1回の通信にまとめる文字数の上限（URLが長くなりすぎないようにする）
+    private static final int MAX_BATCH_CHARS = 500;
+
+    private final Executor executor;
+    private final ScheduledExecutorService scheduler;
+    private final long windowMillis;
+    private final int maxBatchSize;
+
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final Object lock = new Object();
+    private List<String> pending = new ArrayList<>();
+    private int pendingChars;
+    private ScheduledFuture<?> flushTask;
+
+    /**
+     * コンストラクタ
+     * @param executor 通信を実行するExecutor
+     * @param windowMillis 要求をまとめる待ち時間（ミリ秒）
+     * @param maxBatchSize 1回の通信にまとめる最大件数
+     */
+    public IMEBatcher(Executor executor, long windowMillis, int maxBatchSize) {
+        this.executor = executor;
+        this.windowMillis = Math.max(0L, windowMillis);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ChatJP-IME-Batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 変換要求を登録する。同じ文字列を変換中の場合は、そのFutureを返す。
+     * @param org 変換元（ひらがな）
+     * @return 変換結果を返すFuture（通信に失敗した場合は空文字で完了する）
+     */
+    public CompletableFuture<String> submit(String org) {
+
+        CompletableFuture<String> created = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(org, created);
+        if (existing != null) {
+            return existing;
+        }
+
+        // 区切り文字を含む場合はまとめると分割できないので、単独で送信する
+        if (org.indexOf(',') != -1) {
+            dispatch(List.of(org));
+            return created;
+        }
+
+        List<String> overflow = null;
+        List<String> full = null;
+        synchronized (lock) {
+            // 文字数の上限を超える場合は、それまでの要求を先に送信する
+            if (!pending.isEmpty() && pendingChars + org.length() > MAX_BATCH_CHARS) {
+                overflow = takePending();
+            }
+
+            pending.add(org);
+            pendingChars += org.length();
+
+            if (pending.size() >= maxBatchSize || windowMillis == 0) {
+                full = takePending();
+            } else if (flushTask == null) {
+                flushTask = scheduler.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (overflow != null) {
+            dispatch(overflow);
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return created;
+    }
+
+    /**
+     * 待機中の要求をすぐに送信する
+     */
+    public void flush() {
+        List<String> ready;
+        synchronized (lock) {
+            ready = takePending();
+        }
+        if (!ready.isEmpty()) {
+            dispatch(ready);
+        }
+    }
+
+    /**
+     * スレッドを停止し、待機中の要求を空文字で完了させる
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+        for (String org : inFlight.keySet()) {
+            complete(org, inFlight.get(org), "");
+        }
+    }
+
+    // 待機中の要求を取り出す（lockを保持して呼び出すこと）
+    private List<String> takePending() {
+        List<String> taken = pending;
+        pending = new ArrayList<>();
+        pendingChars = 0;
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+        return taken;
+    }
+
+    // まとめた要求を通信スレッドで送信する
+    private void dispatch(List<String> batch) {
+        List<CompletableFuture<String>> futures = new ArrayList<>(batch.size());
+        for (String org : batch) {
+            futures.add(inFlight.get(org));
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    List<String> results = IMEConverter.convBatchByGoogleIME(batch);
+                    for (int i = 0; i < batch.size(); i++) {
+                        complete(batch.get(i), futures.get(i), results.get(i));
+                    }
+                } finally {
+                    // 例外で抜けた場合も、変換中の要求が残り続けないようにする
+                    for (int i = 0; i < batch.size(); i++) {
+                        complete(batch.get(i), futures.get(i), "");
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 通信スレッドが溢れている場合は失敗扱いにする
+            for (int i = 0; i < batch.size(); i++) {
+                complete(batch.get(i), futures.get(i), "");
+            }
+        }
+    }
+
+    private void complete(String org, CompletableFuture<String> future, String result) {
+        if (future != null) {
+            inFlight.remove(org, future);
+            future.complete(result);
+        }
+    }
+}
@@ -5,14 +5,21 @@
  */
 package net.enabify.chatJP;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.ProtocolException;
-import java.net.URL;
+import java.net.URI;
 import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 /**
  * ひらがなのみの文章を、IMEを使用して変換します。
@@ -23,8 +30,63 @@ public class IMEConverter {
 
     private static final String SOCIAL_IME_URL =
         "http://www.social-ime.com/api/?string=";
-    private static final String GOOGLE_IME_URL =
-        "http://www.google.com/transliterate?langpair=ja-Hira|ja&text=";
+    static final String GOOGLE_IME_URL =
+        "https://www.google.com/transliterate?langpair=ja-Hira%7Cja&text=";
+
+    // GoogleIMEの接続先（ベンチマークではローカルのスタブサーバーに差し替える）
+    private static volatile String googleIMEUrl = GOOGLE_IME_URL;
+
+    // 全ての変換で共有するHTTPクライアント（接続は使い回される）
+    private static volatile HttpClient client = buildClient(Duration.ofSeconds(3));
+    private static volatile Duration readTimeout = Duration.ofSeconds(5);
+    private static volatile Semaphore concurrency = new Semaphore(8);
+
+    private static volatile ConversionCache cache = new ConversionCache(1000, 60L * 60L * 1000L);
+
+    /**
+     * 変換結果キャッシュの設定を変更する。既存のキャッシュ内容は破棄される。
+     * @param maxSize 保持する最大件数
+     * @param ttlMillis 有効期限（ミリ秒）
+     */
+    public static void configureCache(int maxSize, long ttlMillis) {
+        cache = new ConversionCache(maxSize, ttlMillis);
+    }
+
+    /**
+     * HTTP通信の設定を変更する
+     * @param connectTimeoutMillis 接続タイムアウト（ミリ秒）
+     * @param readTimeoutMillis 応答を待つタイムアウト（ミリ秒）
+     * @param maxConcurrentRequests 同時に行う通信の最大数
+     */
+    public static void configureHttp(long connectTimeoutMillis, long readTimeoutMillis, int maxConcurrentRequests) {
+        client = buildClient(Duration.ofMillis(Math.max(1L, connectTimeoutMillis)));
+        readTimeout = Duration.ofMillis(Math.max(1L, readTimeoutMillis));
+        concurrency = new Semaphore(Math.max(1, maxConcurrentRequests));
+    }
+
+    /**
+     * GoogleIMEの接続先を変更する（ベンチマーク用）
+     * @param url 変換元を末尾に付けて呼び出すURL、nullの場合は元に戻す
+     */
+    static void setGoogleIMEUrl(String url) {
+        googleIMEUrl = url == null ? GOOGLE_IME_URL : url;
+    }
+
+    private static HttpClient buildClient(Duration connectTimeout) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(connectTimeout)
+                .build();
+    }
+
+    /**
+     * 変換結果キャッシュを返す
+     * @return キャッシュ
+     */
+    public static ConversionCache getCache() {
+        return cache;
+    }
 
     /**
      * GoogleIMEを使って変換する
@@ -32,7 +94,78 @@ public class IMEConverter {
      * @return 変換後
      */
     public static String convByGoogleIME(String org) {
-        return conv(org, true);
+
+        if ( org.length() == 0 ) {
+            return "";
+        }
+
+        ConversionCache current = cache;
+        String cached = current.get(org);
+        if ( cached != null ) {
+            return cached;
+        }
+
+        return convAndCache(org, current);
+    }
+
+    /**
+     * 複数の文章を、カンマで区切って1回の通信でGoogleIME変換する。
+     * キャッシュは参照しないが、変換に成功した結果はキャッシュに登録する。
+     * 応答を文章ごとに分割できなかった場合は、その文章以降を個別に変換し直す。
+     * @param orgs 変換元（カンマを含まないこと）
+     * @return 変換後（orgsと同じ順序、失敗した要素は空文字）
+     */
+    public static List<String> convBatchByGoogleIME(List<String> orgs) {
+
+        ConversionCache current = cache;
+
+        if ( orgs.size() == 1 ) {
+            return Collections.singletonList(convAndCache(orgs.get(0), current));
+        }
+
+        String[] results = new String[orgs.size()];
+        String body = request(googleIMEUrl, String.join(",", orgs), "UTF-8");
+        if ( body != null ) {
+            List<String[]> segments = parseGoogleIMESegments(body);
+            int seg = 0;
+            for ( int i=0; i<orgs.size(); i++ ) {
+                String org = orgs.get(i);
+                StringBuilder reading = new StringBuilder();
+                StringBuilder converted = new StringBuilder();
+                while ( reading.length() < org.length() && seg < segments.size() ) {
+                    String[] segment = segments.get(seg++);
+                    if ( reading.length() == 0 && segment[0].equals(",") ) {
+                        continue; // 区切り文字
+                    }
+                    reading.append(segment[0]);
+                    converted.append(segment[1]);
+                }
+                if ( !reading.toString().equals(org) ) {
+                    break; // 以降は対応が取れないので個別に変換する
+                }
+                results[i] = converted.toString();
+                current.put(org, results[i]);
+            }
+        }
+
+        for ( int i=0; i<results.length; i++ ) {
+            if ( results[i] == null ) {
+                results[i] = convAndCache(orgs.get(i), current);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    // 変換を実行し、成功した場合はキャッシュに登録する
+    private static String convAndCache(String org, ConversionCache current) {
+
+        String result = conv(org, true);
+
+        // 通信に失敗した場合は空文字が返るので、キャッシュしない
+        if ( result.length() > 0 ) {
+            current.put(org, result);
+        }
+        return result;
     }
 
     /**
@@ -53,58 +186,88 @@ public class IMEConverter {
             return "";
         }
 
-        HttpURLConnection urlconn = null;
-        BufferedReader reader = null;
-        try {
-            String baseurl;
-            String encode;
+        String body;
+        if ( isGoogleIME ) {
+            body = request(googleIMEUrl, org, "UTF-8");
+        } else {
+            body = request(SOCIAL_IME_URL, org, "EUC_JP");
+        }
+        if ( body == null ) {
+            return "";
+        }
+
+        StringBuilder result = new StringBuilder();
+        for ( String line : body.split("\n") ) {
             if ( isGoogleIME ) {
-                baseurl = GOOGLE_IME_URL + URLEncoder.encode(org , "UTF-8");
-                encode = "UTF-8";
+                result.append(parseGoogleIMEResult(line));
             } else {
-                baseurl = SOCIAL_IME_URL + URLEncoder.encode(org , "UTF-8");
-                encode = "EUC_JP";
+                result.append(pickFirstElement(line));
             }
-            URL url = new URL(baseurl);
-
-            urlconn = (HttpURLConnection)url.openConnection();
-            urlconn.setRequestMethod("GET");
-            urlconn.setInstanceFollowRedirects(false);
-            urlconn.connect();
-
-            reader = new BufferedReader(
-                    new InputStreamReader(urlconn.getInputStream(), encode));
-            String line = "";
-            StringBuilder result = new StringBuilder();
-            while ( (line = reader.readLine()) != null ) {
-                if ( isGoogleIME ) {
-                    result.append(parseGoogleIMEResult(line));
-                } else {
-                    result.append(pickFirstElement(line));
-                }
+        }
+        return result.toString();
+    }
+
+    /**
+     * 変換元を付けた通信先のURIを作る
+     * @param baseurl 変換元を末尾に付けて呼び出すURL
+     * @param org 変換元
+     * @return URI
+     * @throws IllegalArgumentException URIとして正しくない場合
+     */
+    static URI requestURI(String baseurl, String org) {
+        return URI.create(baseurl + URLEncoder.encode(org , StandardCharsets.UTF_8));
+    }
+
+    // 通信して応答本文を返す。失敗した場合はnull
+    private static String request(String baseurl, String org, String encode) {
+
+        Semaphore permits = concurrency;
+        Duration timeout = readTimeout;
+        boolean acquired = false;
+        ChatMetrics.Counter.IME_REQUESTS.increment();
+        try {
+            // 同時接続数の上限に達している場合は、読み込みタイムアウトまでしか待たない
+            acquired = permits.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            if ( !acquired ) {
+                ChatMetrics.Counter.IME_ERRORS.increment();
+                return null;
             }
 
-            return result.toString();
+            HttpRequest request = HttpRequest.newBuilder(requestURI(baseurl, org))
+                    .timeout(timeout)
+                    .GET()
+                    .build();
 
-        } catch (MalformedURLException e) {
-            e.printStackTrace();
-        } catch (ProtocolException e) {
+            long start = System.nanoTime();
+            HttpResponse<String> response;
+            try {
+                response = client.send(
+                        request, HttpResponse.BodyHandlers.ofString(Charset.forName(encode)));
+            } finally {
+                ChatMetrics.Stage.IME.recordSince(start);
+            }
+            if ( response.statusCode() != 200 ) {
+                ChatMetrics.Counter.IME_ERRORS.increment();
+                return null;
+            }
+            return response.body();
+
+        } catch (IllegalArgumentException e) {
+            ChatMetrics.Counter.IME_ERRORS.increment();
             e.printStackTrace();
         } catch (IOException e) {
+            ChatMetrics.Counter.IME_ERRORS.increment();
             e.printStackTrace();
+        } catch (InterruptedException e) {
+            ChatMetrics.Counter.IME_ERRORS.increment();
+            Thread.currentThread().interrupt();
         } finally {
-            if ( urlconn != null ) {
-                urlconn.disconnect();
-            }
-            if ( reader != null ) {
-                try {
-                    reader.close();
-                } catch (IOException e) { // do nothing.
-                }
+            if ( acquired ) {
+                permits.release();
             }
         }
 
-        return "";
+        return null;
     }
 
     private static String pickFirstElement(String org) {
@@ -116,7 +279,7 @@ public class IMEConverter {
         }
     }
 
-    private static String parseGoogleIMEResult(String result) {
+    static String parseGoogleIMEResult(String result) {
         StringBuilder buf = new StringBuilder();
         int level = 0;
         int index = 0;
@@ -153,4 +316,38 @@ public class IMEConverter {
         }
         return buf.toString();
     }
+
+    // GoogleIMEの応答を、{読み, 第1候補} の文節ごとに分解する
+    private static List<String[]> parseGoogleIMESegments(String result) {
+        List<String[]> segments = new ArrayList<String[]>();
+        String reading = null;
+        int level = 0;
+        int index = 0;
+        while ( index < result.length() ) {
+            char c = result.charAt(index);
+            if ( c == '[' ) {
+                level++;
+                index++;
+            } else if ( c == ']' ) {
+                level--;
+                index++;
+            } else if ( c == '"' ) {
+                int end = result.indexOf("\"", index+1);
+                if ( end == -1 ) {
+                    break;
+                }
+                String value = result.substring(index+1, end);
+                if ( level == 2 ) {
+                    reading = value;
+                } else if ( level == 3 && reading != null ) {
+                    segments.add(new String[]{reading, value});
+                    reading = null;
+                }
+                index = end+1;
+            } else {
+                index++;
+            }
+        }
+        return segments;
+    }
 }
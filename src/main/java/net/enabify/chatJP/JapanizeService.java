@@ -0,0 +1,95 @@
+package net.enabify.chatJP;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * チャットの日本語化を非同期に実行するサービス
+ * 漢字変換が待ち時間の上限を超えた場合は、カナ変換のみの結果を返します。
+ */
+public class JapanizeService {
+
+    private final JapanizeType type;
+    private final Converter converter;
+    private final long timeoutMillis;
+
+    /**
+     * コンストラクタ
+     * @param type 日本語変換タイプ
+     * @param converter カナ変換後に使う漢字変換エンジン
+     * @param timeoutMillis 漢字変換を待つ時間の上限（ミリ秒）
+     */
+    public JapanizeService(JapanizeType type, Converter converter, long timeoutMillis) {
+        this.type = type;
+        this.converter = converter;
+        this.timeoutMillis = Math.max(1L, timeoutMillis);
+    }
+
+    /**
+     * 日本語変換タイプを返す
+     * @return 日本語変換タイプ
+     */
+    public JapanizeType getType() {
+        return type;
+    }
+
+    /**
+     * メッセージを非同期に日本語化する。
+     * 返されるFutureは、遅くとも待ち時間の上限を過ぎた時点でカナ変換の結果で完了する。
+     * @param org 変換元（ローマ字）
+     * @return 日本語化した文字列を返すFuture
+     */
+    public CompletableFuture<String> japanizeAsync(String org) {
+        return translateAsync(org).thenApply(Translation::getText);
+    }
+
+    /**
+     * メッセージを非同期に日本語化し、変換の途中経過も含めた結果を返す。
+     * 返されるFutureは、遅くとも待ち時間の上限を過ぎた時点でカナ変換の結果で完了する。
+     * @param org 変換元（ローマ字）
+     * @return 日本語化した結果を返すFuture（表示する文字列は、日本語化した文字列）
+     */
+    public CompletableFuture<Translation> translateAsync(String org) {
+
+        // カナ変換は軽いので呼び出し元のスレッドで行う
+        long start = System.nanoTime();
+        String kana = Japanizer.toKana(org);
+        ChatMetrics.Stage.KANA.recordSince(start);
+        String fallback = kana.trim();
+        Translation kanaOnly = new Translation(org, kana, "", JapanizeType.KANA, fallback);
+
+        if (kana.isEmpty()) {
+            return CompletableFuture.completedFuture(kanaOnly);
+        }
+
+        CompletableFuture<String> converted;
+        try {
+            converted = converter.convAsync(kana);
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(kanaOnly);
+        }
+
+        // 上限を超えても変換自体は続行され、結果はキャッシュに残る
+        // （同じ文字列の要求とFutureを共有しているので、thenApplyで複製してから上限を設定する）
+        return converted.thenApply(result -> result.isEmpty() ? kanaOnly
+                        : new Translation(org, kana, result, type, result.trim()))
+                .completeOnTimeout(kanaOnly, timeoutMillis, TimeUnit.MILLISECONDS)
+                .exceptionally(t -> kanaOnly);
+    }
+
+    /**
+     * メッセージを日本語化する。待ち時間の上限を超えてブロックすることはない。
+     * @param org 変換元（ローマ字）
+     * @return 日本語化した文字列
+     */
+    public String japanize(String org) {
+        return japanizeAsync(org).join();
+    }
+
+    /**
+     * 漢字変換エンジンを停止する
+     */
+    public void shutdown() {
+        converter.shutdown();
+    }
+}
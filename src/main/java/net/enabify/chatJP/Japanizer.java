@@ -16,28 +16,30 @@ public class Japanizer {
     private static final String REGEX_URL = "https?://[\\w/:%#\\$&\\?\\(\\)~\\.=\\+\\-]+";
 
     /**
-     * メッセージの日本語化をする
+     * メッセージの日本語化をする（GoogleIMEで漢字変換する）
      * @param org
      * @return
      */
     public static String japanize(String org) {
+        return japanize(org, IMEConverter::convByGoogleIME);
+    }
 
-        JapanizeType type = JapanizeType.GOOGLE_IME;
-
-        // URL削除
-        String deletedURL = org.replaceAll(REGEX_URL, " ");
+    /**
+     * メッセージの日本語化をする
+     * @param org
+     * @param converter カナ変換後に使う漢字変換エンジン
+     * @return
+     */
+    public static String japanize(String org, Converter converter) {
 
         // キーワードをロック
         HashMap<String, String> keywordMap = new HashMap<String, String>();
-        String keywordLocked = deletedURL;
 
-        // カナ変換
-        String japanized = KanaConverter.conv(keywordLocked);
+        // URL削除とカナ変換
+        String japanized = toKana(org);
 
-        // IME変換
-        if ( type == JapanizeType.GOOGLE_IME ) {
-            japanized = IMEConverter.convByGoogleIME(japanized);
-        }
+        // 漢字変換
+        japanized = converter.conv(japanized);
 
         // キーワードのアンロック
         for ( String key : keywordMap.keySet() ) {
@@ -48,6 +50,20 @@ public class Japanizer {
         return japanized.trim();
     }
 
+    /**
+     * メッセージからURLを削除し、カナ変換のみを行う
+     * @param org
+     * @return
+     */
+    public static String toKana(String org) {
+
+        // URL削除
+        String deletedURL = org.replaceAll(REGEX_URL, " ");
+
+        // カナ変換
+        return KanaConverter.conv(deletedURL);
+    }
+
     /**
      * 日本語化が必要かどうかを判定する
      * @param org
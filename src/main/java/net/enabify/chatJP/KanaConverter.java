@@ -5,83 +5,148 @@
  */
 package net.enabify.chatJP;
 
-import java.util.HashMap;
-
 /**
  * ローマ字からかな文字へ変換するクラス
  * @author ucchy
  */
 public class KanaConverter {
 
-    private static final HashMap<String, String[]> TABLE;
+    // 子音なしの行（あいうえお）
+    private static final String[] VOWELS = {"あ","い","う","え","お"};
+
+    // 子音（英小文字1～2文字）ごとの行
+    // 1文字は c-'a'、2文字は 26 + (c1-'a')*26 + (c2-'a') の位置に置く
+    private static final String[][] TABLE = new String[26 + 26 * 26][];
     static {
-        TABLE = new HashMap<String, String[]>();
-        TABLE.put(  "", new String[]{"あ","い","う","え","お"});
-        TABLE.put( "k", new String[]{"か","き","く","け","こ"});
-        TABLE.put( "s", new String[]{"さ","し","す","せ","そ"});
-        TABLE.put( "t", new String[]{"た","ち","つ","て","と"});
-        TABLE.put( "n", new String[]{"な","に","ぬ","ね","の"});
-        TABLE.put( "h", new String[]{"は","ひ","ふ","へ","ほ"});
-        TABLE.put( "m", new String[]{"ま","み","む","め","も"});
-        TABLE.put( "y", new String[]{"や","い","ゆ","いぇ","よ"});
-        TABLE.put( "r", new String[]{"ら","り","る","れ","ろ"});
-        TABLE.put( "w", new String[]{"わ","うぃ","う","うぇ","を"});
-        TABLE.put( "g", new String[]{"が","ぎ","ぐ","げ","ご"});
-        TABLE.put( "z", new String[]{"ざ","じ","ず","ぜ","ぞ"});
-        TABLE.put( "j", new String[]{"じゃ","じ","じゅ","じぇ","じょ"});
-        TABLE.put( "d", new String[]{"だ","ぢ","づ","で","ど"});
-        TABLE.put( "b", new String[]{"ば","び","ぶ","べ","ぼ"});
-        TABLE.put( "p", new String[]{"ぱ","ぴ","ぷ","ぺ","ぽ"});
-        TABLE.put("gy", new String[]{"ぎゃ","ぎぃ","ぎゅ","ぎぇ","ぎょ"});
-        TABLE.put("gw", new String[]{"ぐぁ","ぐぃ","ぐぅ","ぐぇ","ぐぉ"});
-        TABLE.put("zy", new String[]{"じゃ","じぃ","じゅ","じぇ","じょ"});
-        TABLE.put("jy", new String[]{"じゃ","じぃ","じゅ","じぇ","じょ"});
-        TABLE.put("dy", new String[]{"ぢゃ","ぢぃ","ぢゅ","ぢぇ","ぢょ"});
-        TABLE.put("dh", new String[]{"でゃ","でぃ","でゅ","でぇ","でょ"});
-        TABLE.put("dw", new String[]{"どぁ","どぃ","どぅ","どぇ","どぉ"});
-        TABLE.put("by", new String[]{"びゃ","びぃ","びゅ","びぇ","びょ"});
-        TABLE.put("py", new String[]{"ぴゃ","ぴぃ","ぴゅ","ぴぇ","ぴょ"});
-        TABLE.put( "v", new String[]{"ヴぁ","ヴぃ","ヴ","ヴぇ","ヴぉ"});
-        TABLE.put("vy", new String[]{"ヴゃ","ヴぃ","ヴゅ","ヴぇ","ヴょ"});
-        TABLE.put("sh", new String[]{"しゃ","し","しゅ","しぇ","しょ"});
-        TABLE.put("sy", new String[]{"しゃ","し","しゅ","しぇ","しょ"});
-        TABLE.put( "c", new String[]{"か","し","く","せ","こ"});
-        TABLE.put("ch", new String[]{"ちゃ","ち","ちゅ","ちぇ","ちょ"});
-        TABLE.put("cy", new String[]{"ちゃ","ち","ちゅ","ちぇ","ちょ"});
-        TABLE.put( "f", new String[]{"ふぁ","ふぃ","ふ","ふぇ","ふぉ"});
-        TABLE.put("fy", new String[]{"ふゃ","ふぃ","ふゅ","ふぇ","ふょ"});
-        TABLE.put("fw", new String[]{"ふぁ","ふぃ","ふ","ふぇ","ふぉ"});
-        TABLE.put( "q", new String[]{"くぁ","くぃ","く","くぇ","くぉ"});
-        TABLE.put("ky", new String[]{"きゃ","きぃ","きゅ","きぇ","きょ"});
-        TABLE.put("kw", new String[]{"くぁ","くぃ","く","くぇ","くぉ"});
-        TABLE.put("ty", new String[]{"ちゃ","ちぃ","ちゅ","ちぇ","ちょ"});
-        TABLE.put("ts", new String[]{"つぁ","つぃ","つ","つぇ","つぉ"});
-        TABLE.put("th", new String[]{"てゃ","てぃ","てゅ","てぇ","てょ"});
-        TABLE.put("tw", new String[]{"とぁ","とぃ","とぅ","とぇ","とぉ"});
-        TABLE.put("ny", new String[]{"にゃ","にぃ","にゅ","にぇ","にょ"});
-        TABLE.put("hy", new String[]{"ひゃ","ひぃ","ひゅ","ひぇ","ひょ"});
-        TABLE.put("my", new String[]{"みゃ","みぃ","みゅ","みぇ","みょ"});
-        TABLE.put("ry", new String[]{"りゃ","りぃ","りゅ","りぇ","りょ"});
-        TABLE.put( "l", new String[]{"ぁ","ぃ","ぅ","ぇ","ぉ"});
-        TABLE.put( "x", new String[]{"ぁ","ぃ","ぅ","ぇ","ぉ"});
-        TABLE.put("ly", new String[]{"ゃ","ぃ","ゅ","ぇ","ょ"});
-        TABLE.put("lt", new String[]{"た","ち","っ","て","と"});
-        TABLE.put("lk", new String[]{"ヵ","き","く","ヶ","こ"});
-        TABLE.put("xy", new String[]{"ゃ","ぃ","ゅ","ぇ","ょ"});
-        TABLE.put("xt", new String[]{"た","ち","っ","て","と"});
-        TABLE.put("xk", new String[]{"ヵ","き","く","ヶ","こ"});
-        TABLE.put("wy", new String[]{"わ","ゐ","う","ゑ","を"});
-        TABLE.put("wh", new String[]{"うぁ","うぃ","う","うぇ","うぉ"});
+        put( "k", new String[]{"か","き","く","け","こ"});
+        put( "s", new String[]{"さ","し","す","せ","そ"});
+        put( "t", new String[]{"た","ち","つ","て","と"});
+        put( "n", new String[]{"な","に","ぬ","ね","の"});
+        put( "h", new String[]{"は","ひ","ふ","へ","ほ"});
+        put( "m", new String[]{"ま","み","む","め","も"});
+        put( "y", new String[]{"や","い","ゆ","いぇ","よ"});
+        put( "r", new String[]{"ら","り","る","れ","ろ"});
+        put( "w", new String[]{"わ","うぃ","う","うぇ","を"});
+        put( "g", new String[]{"が","ぎ","ぐ","げ","ご"});
+        put( "z", new String[]{"ざ","じ","ず","ぜ","ぞ"});
+        put( "j", new String[]{"じゃ","じ","じゅ","じぇ","じょ"});
+        put( "d", new String[]{"だ","ぢ","づ","で","ど"});
+        put( "b", new String[]{"ば","び","ぶ","べ","ぼ"});
+        put( "p", new String[]{"ぱ","ぴ","ぷ","ぺ","ぽ"});
+        put("gy", new String[]{"ぎゃ","ぎぃ","ぎゅ","ぎぇ","ぎょ"});
+        put("gw", new String[]{"ぐぁ","ぐぃ","ぐぅ","ぐぇ","ぐぉ"});
+        put("zy", new String[]{"じゃ","じぃ","じゅ","じぇ","じょ"});
+        put("jy", new String[]{"じゃ","じぃ","じゅ","じぇ","じょ"});
+        put("dy", new String[]{"ぢゃ","ぢぃ","ぢゅ","ぢぇ","ぢょ"});
+        put("dh", new String[]{"でゃ","でぃ","でゅ","でぇ","でょ"});
+        put("dw", new String[]{"どぁ","どぃ","どぅ","どぇ","どぉ"});
+        put("by", new String[]{"びゃ","びぃ","びゅ","びぇ","びょ"});
+        put("py", new String[]{"ぴゃ","ぴぃ","ぴゅ","ぴぇ","ぴょ"});
+        put( "v", new String[]{"ヴぁ","ヴぃ","ヴ","ヴぇ","ヴぉ"});
+        put("vy", new String[]{"ヴゃ","ヴぃ","ヴゅ","ヴぇ","ヴょ"});
+        put("sh", new String[]{"しゃ","し","しゅ","しぇ","しょ"});
+        put("sy", new String[]{"しゃ","し","しゅ","しぇ","しょ"});
+        put( "c", new String[]{"か","し","く","せ","こ"});
+        put("ch", new String[]{"ちゃ","ち","ちゅ","ちぇ","ちょ"});
+        put("cy", new String[]{"ちゃ","ち","ちゅ","ちぇ","ちょ"});
+        put( "f", new String[]{"ふぁ","ふぃ","ふ","ふぇ","ふぉ"});
+        put("fy", new String[]{"ふゃ","ふぃ","ふゅ","ふぇ","ふょ"});
+        put("fw", new String[]{"ふぁ","ふぃ","ふ","ふぇ","ふぉ"});
+        put( "q", new String[]{"くぁ","くぃ","く","くぇ","くぉ"});
+        put("ky", new String[]{"きゃ","きぃ","きゅ","きぇ","きょ"});
+        put("kw", new String[]{"くぁ","くぃ","く","くぇ","くぉ"});
+        put("ty", new String[]{"ちゃ","ちぃ","ちゅ","ちぇ","ちょ"});
+        put("ts", new String[]{"つぁ","つぃ","つ","つぇ","つぉ"});
+        put("th", new String[]{"てゃ","てぃ","てゅ","てぇ","てょ"});
+        put("tw", new String[]{"とぁ","とぃ","とぅ","とぇ","とぉ"});
+        put("ny", new String[]{"にゃ","にぃ","にゅ","にぇ","にょ"});
+        put("hy", new String[]{"ひゃ","ひぃ","ひゅ","ひぇ","ひょ"});
+        put("my", new String[]{"みゃ","みぃ","みゅ","みぇ","みょ"});
+        put("ry", new String[]{"りゃ","りぃ","りゅ","りぇ","りょ"});
+        put( "l", new String[]{"ぁ","ぃ","ぅ","ぇ","ぉ"});
+        put( "x", new String[]{"ぁ","ぃ","ぅ","ぇ","ぉ"});
+        put("ly", new String[]{"ゃ","ぃ","ゅ","ぇ","ょ"});
+        put("lt", new String[]{"た","ち","っ","て","と"});
+        put("lk", new String[]{"ヵ","き","く","ヶ","こ"});
+        put("xy", new String[]{"ゃ","ぃ","ゅ","ぇ","ょ"});
+        put("xt", new String[]{"た","ち","っ","て","と"});
+        put("xk", new String[]{"ヵ","き","く","ヶ","こ"});
+        put("wy", new String[]{"わ","ゐ","う","ゑ","を"});
+        put("wh", new String[]{"うぁ","うぃ","う","うぇ","うぉ"});
     };
 
-    private static String getKanaFromTable(String s, int n) {
+    private static void put(String key, String[] row) {
+        TABLE[indexOf(key, 0, key.length())] = row;
+    }
 
-        if ( TABLE.containsKey(s) ) {
-            return TABLE.get(s)[n];
+    // 英小文字1～2文字の子音の、TABLE上の位置を返す（該当しない場合は-1）
+    private static int indexOf(CharSequence s, int from, int to) {
+        int len = to - from;
+        if ( len == 1 ) {
+            char c = s.charAt(from);
+            if ( c >= 'a' && c <= 'z' ) {
+                return c - 'a';
+            }
+        } else if ( len == 2 ) {
+            char c1 = s.charAt(from);
+            char c2 = s.charAt(from + 1);
+            if ( c1 >= 'a' && c1 <= 'z' && c2 >= 'a' && c2 <= 'z' ) {
+                return 26 + (c1 - 'a') * 26 + (c2 - 'a');
+            }
         }
-        return s + TABLE.get("")[n];
+        return -1;
     }
 
+    // 子音 s[from..to) と母音 n からかな文字を求めて、lineに追記する
+    private static void appendKana(CharSequence s, int from, int to, int n, StringBuilder line) {
+
+        if ( from == to ) {
+            line.append(VOWELS[n]);
+            return;
+        }
+        int index = indexOf(s, from, to);
+        if ( index != -1 && TABLE[index] != null ) {
+            line.append(TABLE[index][n]);
+            return;
+        }
+        line.append(s, from, to).append(VOWELS[n]);
+    }
+
+    // 母音の番号を返す（母音でない場合は-1）
+    private static int vowelOf(char c) {
+        switch ( c ) {
+        case 'a' : return 0;
+        case 'i' : return 1;
+        case 'u' : return 2;
+        case 'e' : return 3;
+        case 'o' : return 4;
+        default : return -1;
+        }
+    }
+
+    // 記号に対応する全角文字を返す（対応しない場合はそのまま、括弧は出力しないので0）
+    private static char symbolOf(char c) {
+        switch ( c ) {
+        case '-' : return 'ー';
+        case '.' : return '。';
+        case ',' : return '、';
+        case '?' : return '？';
+        case '!' : return '！';
+        case '[' : return '「';
+        case ']' : return '」';
+        case '<' : return '＜';
+        case '>' : return '＞';
+        case '&' : return '＆';
+        case '"' : return '”';
+        case '(' : case ')' : return 0;
+        default : return c;
+        }
+    }
+
+    // conv(String)で使い回すバッファ
+    private static final ThreadLocal<StringBuilder> BUFFER =
+            ThreadLocal.withInitial(() -> new StringBuilder(256));
+
     /**
      * ローマ字をかな文字へ変換する
      * @param org 変換元文字列
@@ -89,91 +154,66 @@ public class KanaConverter {
      */
     public static String conv(String org) {
 
-        String last = "";
-        StringBuilder line = new StringBuilder();
+        StringBuilder line = BUFFER.get();
+        line.setLength(0);
+        conv(org, line);
+        String result = line.toString();
+
+        // 長いメッセージで大きくなったバッファは保持しない
+        if ( line.capacity() > 4096 ) {
+            BUFFER.remove();
+        }
+        return result;
+    }
+
+    /**
+     * ローマ字をかな文字へ変換し、lineに追記する。
+     * 入力を1回だけ走査し、1文字ごとのオブジェクト生成は行わない。
+     * @param org 変換元文字列
+     * @param line 出力先
+     */
+    public static void conv(CharSequence org, StringBuilder line) {
+
+        // 未確定の子音は、常に入力上の連続した範囲 org[last..i) になる
+        int last = 0;
 
         for ( int i=0; i<org.length(); i++ ) {
-            String tmp = org.substring(i,i+1);
-
-            if ( tmp.equals("a") ) {
-                line.append( getKanaFromTable(last, 0) );
-                last = "";
-            } else if ( tmp.equals("i") ) {
-                line.append( getKanaFromTable(last, 1) );
-                last = "";
-            } else if ( tmp.equals("u") ) {
-                line.append( getKanaFromTable(last, 2) );
-                last = "";
-            } else if ( tmp.equals("e") ) {
-                line.append( getKanaFromTable(last, 3) );
-                last = "";
-            } else if ( tmp.equals("o") ) {
-                line.append( getKanaFromTable(last, 4) );
-                last = "";
-            } else {
-                if ( last.equals("n") && !(tmp.equals("y")) ) {
-                    line.append("ん");
-                    last = "";
-                    if ( tmp.equals("n") ) {
-                        continue;
-                    }
+            char tmp = org.charAt(i);
+
+            int vowel = vowelOf(tmp);
+            if ( vowel != -1 ) {
+                appendKana(org, last, i, vowel, line);
+                last = i + 1;
+                continue;
+            }
+
+            if ( i - last == 1 && org.charAt(last) == 'n' && tmp != 'y' ) {
+                line.append('ん');
+                last = i;
+                if ( tmp == 'n' ) {
+                    last = i + 1;
+                    continue;
+                }
+            }
+
+            if ( Character.isLetter(tmp) ) {
+                if ( Character.isUpperCase(tmp) ) {
+                    line.append(org, last, i + 1);
+                    last = i + 1;
+                } else if ( i - last == 1 && org.charAt(last) == tmp ) {
+                    line.append('っ');
+                    last = i;
                 }
-                if ( Character.isLetter(tmp.charAt(0)) ) {
-                    if ( Character.isUpperCase(tmp.charAt(0)) ) {
-                        line.append(last + tmp);
-                        last = "";
-                    } else if ( last.equals(tmp) ) {
-                        line.append("っ");
-                        last = tmp;
-                    } else {
-                        last = last + tmp;
-                    }
-                } else {
-                    if ( tmp.equals("-") ) {
-                        line.append(last + "ー");
-                        last = "";
-                    } else if ( tmp.equals(".") ) {
-                        line.append(last + "。");
-                        last = "";
-                    } else if ( tmp.equals(",") ) {
-                        line.append(last + "、");
-                        last = "";
-                    } else if ( tmp.equals("?") ) {
-                        line.append(last + "？");
-                        last = "";
-                    } else if ( tmp.equals("!") ) {
-                        line.append(last + "！");
-                        last = "";
-                    } else if ( tmp.equals("[") ) {
-                        line.append(last + "「");
-                        last = "";
-                    } else if ( tmp.equals("]") ) {
-                        line.append(last + "」");
-                        last = "";
-                    } else if ( tmp.equals("<") ) {
-                        line.append(last + "＜");
-                        last = "";
-                    } else if ( tmp.equals(">") ) {
-                        line.append(last + "＞");
-                        last = "";
-                    } else if ( tmp.equals("&") ) {
-                        line.append(last + "＆");
-                        last = "";
-                    } else if ( tmp.equals("\"") ) {
-                        line.append(last + "”");
-                        last = "";
-                    } else if ( tmp.equals("(") || tmp.equals(")") ) {
-                        line.append(last);
-                        last = "";
-                    } else {
-                        line.append(last + tmp);
-                        last = "";
-                    }
+                // それ以外は、未確定の子音に加える
+            } else {
+                line.append(org, last, i);
+                last = i + 1;
+                char symbol = symbolOf(tmp);
+                if ( symbol != 0 ) {
+                    line.append(symbol);
                 }
             }
         }
-        line.append(last);
-
-        return line.toString();
+        line.append(org, last, org.length());
     }
 }
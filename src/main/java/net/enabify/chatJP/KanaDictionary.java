@@ -0,0 +1,37 @@
+package net.enabify.chatJP;
+
+/**
+ * 読み（ひらがな）から変換候補を引く辞書
+ */
+public interface KanaDictionary {
+
+    /**
+     * textのstart位置から始まる見出し語を、短い順に全て探す
+     * @param text 検索対象
+     * @param start 検索開始位置
+     * @param lengths 一致した見出し語の長さを格納する配列
+     * @param entries 一致した見出し語のエントリ番号を格納する配列
+     * @return 一致した件数（配列の長さを超えない）
+     */
+    int commonPrefixSearch(CharSequence text, int start, int[] lengths, int[] entries);
+
+    /**
+     * エントリの変換コストを返す（小さいほど優先される）
+     * @param entry エントリ番号
+     * @return 変換コスト
+     */
+    int cost(int entry);
+
+    /**
+     * エントリの変換候補をoutに追記する
+     * @param entry エントリ番号
+     * @param out 出力先
+     */
+    void appendCandidate(int entry, StringBuilder out);
+
+    /**
+     * 登録されている見出し語の数を返す
+     * @return 見出し語の数
+     */
+    int size();
+}
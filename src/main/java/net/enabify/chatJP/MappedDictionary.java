@@ -0,0 +1,141 @@
+package net.enabify.chatJP;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link DictionaryCompiler} で作成したバイナリ辞書を、メモリマップして引く辞書
+ * 辞書の内容はヒープに読み込まず、検索中もオブジェクトを生成しません。
+ */
+public class MappedDictionary implements KanaDictionary {
+
+    // ヘッダー: 識別子, バージョン, 配列の大きさ, エントリ数, 候補の総文字数
+    private static final int HEADER_SIZE = 5 * 4;
+
+    private final MappedByteBuffer buffer;
+    private final int arraySize;
+    private final int entryCount;
+
+    private final int baseOffset;
+    private final int checkOffset;
+    private final int costOffset;
+    private final int candidateOffset;
+    private final int charOffset;
+
+    private MappedDictionary(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != DictionaryCompiler.MAGIC) {
+            throw new IOException("辞書ファイルの形式が正しくありません");
+        }
+        if (buffer.getInt(4) != DictionaryCompiler.VERSION) {
+            throw new IOException("辞書ファイルのバージョンが異なります: " + buffer.getInt(4));
+        }
+
+        this.arraySize = buffer.getInt(8);
+        this.entryCount = buffer.getInt(12);
+        int charCount = buffer.getInt(16);
+
+        this.baseOffset = HEADER_SIZE + DictionaryCompiler.CODE_TABLE_SIZE * 2;
+        this.checkOffset = baseOffset + arraySize * 4;
+        this.costOffset = checkOffset + arraySize * 4;
+        this.candidateOffset = costOffset + entryCount * 4;
+        this.charOffset = candidateOffset + (entryCount + 1) * 4;
+
+        if (buffer.capacity() < charOffset + charCount * 2) {
+            throw new IOException("辞書ファイルが途中で切れています");
+        }
+    }
+
+    /**
+     * バイナリ辞書を開く
+     * @param file バイナリ辞書のファイル
+     * @return 辞書
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public static MappedDictionary open(Path file) throws IOException {
+        // マップした領域はチャンネルを閉じた後も有効
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new MappedDictionary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * バイナリ辞書がこのバージョンで読み込める形式かどうかを返す
+     * @param file バイナリ辞書のファイル
+     * @return 読み込める場合はtrue、ファイルがない場合や形式が異なる場合はfalse
+     */
+    public static boolean isCompatible(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            if (channel.read(header, 0) < header.capacity()) {
+                return false;
+            }
+            return header.getInt(0) == DictionaryCompiler.MAGIC && header.getInt(4) == DictionaryCompiler.VERSION;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public int commonPrefixSearch(CharSequence text, int start, int[] lengths, int[] entries) {
+        int found = 0;
+        int node = 0;
+        for (int i = start; i < text.length() && found < lengths.length; i++) {
+            int code = codeOf(text.charAt(i));
+            if (code == 0) {
+                break;
+            }
+
+            int next = base(node) + code;
+            if (next >= arraySize || check(next) != node) {
+                break;
+            }
+            node = next;
+
+            // 終端ノード（文字番号0）があれば、ここまでが見出し語
+            int terminal = base(node);
+            if (terminal < arraySize && check(terminal) == node) {
+                lengths[found] = i - start + 1;
+                entries[found] = -base(terminal) - 1;
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public int cost(int entry) {
+        return buffer.getInt(costOffset + entry * 4);
+    }
+
+    @Override
+    public void appendCandidate(int entry, StringBuilder out) {
+        int from = buffer.getInt(candidateOffset + entry * 4);
+        int to = buffer.getInt(candidateOffset + (entry + 1) * 4);
+        for (int i = from; i < to; i++) {
+            out.append(buffer.getChar(charOffset + i * 2));
+        }
+    }
+
+    @Override
+    public int size() {
+        return entryCount;
+    }
+
+    private int codeOf(char c) {
+        return buffer.getChar(HEADER_SIZE + c * 2);
+    }
+
+    private int base(int index) {
+        return buffer.getInt(baseOffset + index * 4);
+    }
+
+    private int check(int index) {
+        return buffer.getInt(checkOffset + index * 4);
+    }
+}
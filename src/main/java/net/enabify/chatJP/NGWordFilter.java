@@ -0,0 +1,345 @@
+package net.enabify.chatJP;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * NGワードを伏字にするフィルター
+ * 単純な文字列のルールはAho–Corasick法、正規表現のルールは1つにまとめたPatternで、
+ * メッセージを1回ずつ走査して伏字にします。英字の大文字・小文字は区別しません。
+ * 後方参照や名前付きグループを使う正規表現のルールは、まとめるとグループ番号や名前が変わるため、
+ * それぞれ個別のPatternで照合します。
+ * 単語リストの単語は {@link TextNormalizer} で正規化したメッセージから探すので、
+ * 全角・半角やカタカナ・ひらがなの違い、間に挟まれた記号があっても一致します。
+ */
+public class NGWordFilter {
+
+    /** 伏字 */
+    public static final String MASK = "****";
+
+    // 正規表現として扱う文字
+    private static final String REGEX_META = "\\^$.|?*+()[]{}";
+
+    private final List<String> rules;
+    private final LongAdder[] hits;
+
+    private final AhoCorasick literals;
+    private final int[] literalRules;
+
+    private final Pattern combined;
+    private final int[] regexRules;
+    private final int[] regexGroups;
+
+    private final Pattern[] standalone;
+    private final int[] standaloneRules;
+
+    private final AhoCorasick words;
+    private final LongAdder wordHits = new LongAdder();
+
+    /**
+     * コンストラクタ
+     * @param rules NGワード（正規表現、またはエスケープされた文字列）
+     * @param logger 不正な正規表現を報告するロガー
+     */
+    public NGWordFilter(List<String> rules, Logger logger) {
+        this(rules, Collections.emptyList(), logger);
+    }
+
+    /**
+     * コンストラクタ
+     * @param rules NGワード（正規表現、またはエスケープされた文字列）
+     * @param wordList 単語リスト（正規化して照合する単語）
+     * @param logger 不正な正規表現を報告するロガー
+     */
+    public NGWordFilter(List<String> rules, List<String> wordList, Logger logger) {
+
+        List<String> accepted = new ArrayList<>();
+        List<String> literalPatterns = new ArrayList<>();
+        List<Integer> literalIndexes = new ArrayList<>();
+        List<Integer> regexIndexes = new ArrayList<>();
+        List<Integer> regexGroupIndexes = new ArrayList<>();
+        List<Pattern> standalonePatterns = new ArrayList<>();
+        List<Integer> standaloneIndexes = new ArrayList<>();
+        StringBuilder alternation = new StringBuilder();
+        int group = 1;
+
+        for (String rule : rules) {
+            if (rule == null || rule.isEmpty()) {
+                continue;
+            }
+
+            String literal = toLiteral(rule);
+            if (literal != null) {
+                literalPatterns.add(literal);
+                literalIndexes.add(accepted.size());
+                accepted.add(rule);
+                continue;
+            }
+
+            Pattern pattern;
+            try {
+                pattern = Pattern.compile(rule, Pattern.CASE_INSENSITIVE);
+            } catch (PatternSyntaxException e) {
+                if (logger != null) {
+                    logger.warning("NGワード「" + rule + "」は正しい正規表現ではないため無視します: " + e.getDescription());
+                }
+                continue;
+            }
+
+            if (usesGroupReferences(rule)) {
+                standalonePatterns.add(pattern);
+                standaloneIndexes.add(accepted.size());
+                accepted.add(rule);
+                continue;
+            }
+
+            // ルールごとに括弧で囲み、どのルールに一致したかをグループ番号で判別する
+            if (alternation.length() > 0) {
+                alternation.append('|');
+            }
+            alternation.append('(').append(rule).append(')');
+            regexIndexes.add(accepted.size());
+            regexGroupIndexes.add(group);
+            group += 1 + pattern.matcher("").groupCount();
+            accepted.add(rule);
+        }
+
+        this.rules = Collections.unmodifiableList(accepted);
+        this.hits = new LongAdder[accepted.size()];
+        for (int i = 0; i < hits.length; i++) {
+            hits[i] = new LongAdder();
+        }
+
+        this.literals = literalPatterns.isEmpty() ? null : new AhoCorasick(literalPatterns);
+        this.literalRules = toArray(literalIndexes);
+
+        this.combined = regexIndexes.isEmpty() ? null
+                : Pattern.compile(alternation.toString(), Pattern.CASE_INSENSITIVE);
+        this.regexRules = toArray(regexIndexes);
+        this.regexGroups = toArray(regexGroupIndexes);
+        this.standalone = standalonePatterns.toArray(new Pattern[0]);
+        this.standaloneRules = toArray(standaloneIndexes);
+
+        List<String> normalizedWords = new ArrayList<>(wordList.size());
+        for (String word : wordList) {
+            String normalized = TextNormalizer.normalize(word);
+            if (!normalized.isEmpty()) {
+                normalizedWords.add(normalized);
+            }
+        }
+        this.words = normalizedWords.isEmpty() ? null : new AhoCorasick(normalizedWords);
+    }
+
+    /**
+     * 単語リストのファイルを読み込む
+     * 1行に1語を書き、空行と#で始まる行は無視する。
+     * @param file 単語リストのファイル（UTF-8）
+     * @return 単語のリスト
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public static List<String> readWordList(Path file) throws IOException {
+        List<String> list = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    list.add(line);
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * メッセージ内のNGワードを伏字にする
+     * 複数のルールが重なる場合は、より前から始まるもの、同じ位置なら長いものを優先する。
+     * @param message 元のメッセージ
+     * @return 伏字にされたメッセージ
+     */
+    public String mask(String message) {
+        long start = System.nanoTime();
+        try {
+            return maskMatches(message);
+        } finally {
+            ChatMetrics.Stage.NG_MASK.recordSince(start);
+        }
+    }
+
+    private String maskMatches(String message) {
+
+        if (message.isEmpty() || (rules.isEmpty() && words == null)) {
+            return message;
+        }
+
+        // {開始位置, 終了位置, ルール番号} の組で一致箇所を集める
+        List<int[]> matches = new ArrayList<>();
+        if (literals != null) {
+            literals.search(message, (pattern, start, end) ->
+                    matches.add(new int[]{start, end, literalRules[pattern]}));
+        }
+        if (combined != null) {
+            Matcher matcher = combined.matcher(message);
+            while (matcher.find()) {
+                if (matcher.end() == matcher.start()) {
+                    continue;
+                }
+                matches.add(new int[]{matcher.start(), matcher.end(), regexRuleOf(matcher)});
+            }
+        }
+        for (int k = 0; k < standalone.length; k++) {
+            Matcher matcher = standalone[k].matcher(message);
+            while (matcher.find()) {
+                if (matcher.end() != matcher.start()) {
+                    matches.add(new int[]{matcher.start(), matcher.end(), standaloneRules[k]});
+                }
+            }
+        }
+        if (words != null) {
+            // 正規化したメッセージで探し、一致した範囲を元のメッセージの位置に戻す
+            char[] normalized = new char[message.length()];
+            int[] starts = new int[message.length()];
+            int[] ends = new int[message.length()];
+            int length = TextNormalizer.normalize(message, normalized, starts, ends);
+            words.search(CharBuffer.wrap(normalized, 0, length), (pattern, start, end) ->
+                    matches.add(new int[]{starts[start], ends[end - 1], -1}));
+        }
+        if (matches.isEmpty()) {
+            return message;
+        }
+
+        matches.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(b[1], a[1]));
+
+        StringBuilder out = new StringBuilder(message.length());
+        int pos = 0;
+        for (int[] match : matches) {
+            if (match[0] < pos) {
+                continue; // 既に伏字にした範囲と重なる
+            }
+            out.append(message, pos, match[0]).append(MASK);
+            pos = match[1];
+            if (match[2] < 0) {
+                wordHits.increment();
+            } else {
+                hits[match[2]].increment();
+            }
+        }
+        out.append(message, pos, message.length());
+        return out.toString();
+    }
+
+    /**
+     * 有効なルールの一覧を返す
+     * @return ルール（ルール番号の順）
+     */
+    public List<String> getRules() {
+        return rules;
+    }
+
+    /**
+     * ルールごとの一致回数を返す
+     * @param rule ルール番号
+     * @return 一致回数
+     */
+    public long getHitCount(int rule) {
+        return hits[rule].sum();
+    }
+
+    /**
+     * 単語リストの単語数を返す
+     * @return 単語数
+     */
+    public int getWordCount() {
+        return words == null ? 0 : words.size();
+    }
+
+    /**
+     * 単語リストの一致回数を返す
+     * @return 一致回数
+     */
+    public long getWordHitCount() {
+        return wordHits.sum();
+    }
+
+    private int regexRuleOf(Matcher matcher) {
+        for (int k = 0; k < regexGroups.length; k++) {
+            if (matcher.start(regexGroups[k]) != -1) {
+                return regexRules[k];
+            }
+        }
+        return regexRules[0];
+    }
+
+    /**
+     * ルールが単純な文字列の場合は、エスケープを外した文字列を返す
+     * @param rule ルール
+     * @return 単純な文字列、正規表現の機能を使っている場合はnull
+     */
+    static String toLiteral(String rule) {
+        StringBuilder literal = new StringBuilder(rule.length());
+        for (int i = 0; i < rule.length(); i++) {
+            char c = rule.charAt(i);
+            if (c == '\\') {
+                // 記号のエスケープだけを文字列として扱う（\d や \s などは正規表現）
+                if (i + 1 >= rule.length() || Character.isLetterOrDigit(rule.charAt(i + 1))) {
+                    return null;
+                }
+                literal.append(rule.charAt(++i));
+            } else if (REGEX_META.indexOf(c) != -1) {
+                return null;
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.toString();
+    }
+
+    /**
+     * ルールが後方参照（\1、\k&lt;name&gt;）や名前付きグループを使っているかどうかを返す
+     * @param rule ルール
+     * @return 使っている場合はtrue
+     */
+    static boolean usesGroupReferences(String rule) {
+        for (int i = 0; i < rule.length(); i++) {
+            char c = rule.charAt(i);
+            if (c == '\\' && i + 1 < rule.length()) {
+                char next = rule.charAt(++i);
+                if ((next >= '1' && next <= '9') || next == 'k') {
+                    return true;
+                }
+                if (next == 'Q') {
+                    // \Q～\Eの間は文字列として扱われる
+                    int end = rule.indexOf("\\E", i + 1);
+                    if (end == -1) {
+                        return false;
+                    }
+                    i = end + 1;
+                }
+            } else if (c == '(' && rule.startsWith("?<", i + 1) && i + 3 < rule.length()
+                    && Character.isLetter(rule.charAt(i + 3))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,84 @@
+package net.enabify.chatJP;
+
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.text.Component;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.util.List;
+
+/**
+ * サーバーの種類（Paper・Folia）によるタスクの実行方法の違いを吸収するインターフェース
+ */
+public interface PlatformScheduler {
+
+    /**
+     * 実行中のタスク
+     */
+    interface Task {
+
+        /**
+         * タスクを停止する
+         */
+        void cancel();
+    }
+
+    /**
+     * 一定間隔でタスクを実行する
+     * Paperではメインスレッド、Foliaではグローバルリージョンのスレッドで実行される。
+     * @param task タスク
+     * @param periodTicks 実行の間隔（tick）
+     * @return 実行中のタスク
+     */
+    Task runRepeating(Runnable task, long periodTicks);
+
+    /**
+     * プレイヤーを操作できるスレッドでタスクを実行する
+     * Paperではメインスレッド、Foliaではプレイヤーのいるリージョンのスレッドで実行される。
+     * プレイヤーがログアウトした場合は実行されない。
+     * @param player プレイヤー
+     * @param task タスク
+     */
+    void runForPlayer(Player player, Runnable task);
+
+    /**
+     * Audienceにメッセージを送信する
+     * Paperではメインスレッドで1回送信し、Foliaではプレイヤーごとにそのプレイヤーのいるリージョンのスレッドで送信する。
+     * @param audience 送信先
+     * @param messages メッセージ（順番に送信される）
+     */
+    void sendMessages(Audience audience, List<Component> messages);
+
+    /**
+     * 非同期でタスクを実行する
+     * @param task タスク
+     */
+    void runAsync(Runnable task);
+
+    /**
+     * このプラグインのタスクを全て停止する
+     */
+    void cancelAll();
+
+    /**
+     * 実行中のサーバーに合わせたスケジューラーを作成する
+     * @param plugin プラグイン
+     * @return スケジューラー
+     */
+    static PlatformScheduler create(Plugin plugin) {
+        return isFolia() ? new FoliaPlatformScheduler(plugin) : new BukkitPlatformScheduler(plugin);
+    }
+
+    /**
+     * Foliaで実行中か
+     * @return Foliaの場合true
+     */
+    static boolean isFolia() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package net.enabify.chatJP;
+
+import org.bukkit.ChatColor;
+import org.bukkit.Statistic;
+import org.bukkit.entity.Player;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * プレイ時間による初心者マーク（*、新規さん）をプレイヤーごとに保持するキャッシュ
+ * 統計の読み込みは、参加時と一定間隔の更新時にプレイヤーのスレッドで行い、
+ * チャットのスレッドからは計算済みの段階を読むだけにします。
+ * 表示名は他のプラグインが変更することがあるので保持せず、使うときに読みます。
+ */
+public class PlayerTierCache {
+
+    /**
+     * 初心者マークの段階
+     */
+    public enum Tier {
+
+        /** マークなし */
+        NONE(""),
+
+        /** プレイ時間が6時間以下 */
+        BEGINNER(ChatColor.GREEN + "*" + ChatColor.RESET),
+
+        /** プレイ時間が2時間以下 */
+        NEWCOMER(ChatColor.GREEN + "*" + ChatColor.GREEN + "新規さん" + ChatColor.RESET);
+
+        private static final long TICKS_PER_HOUR = 20L * 60L * 60L;
+        private static final long SIX_HOURS_TICKS = 6L * TICKS_PER_HOUR;
+        private static final long TWO_HOURS_TICKS = 2L * TICKS_PER_HOUR;
+
+        private final String mark;
+        private final String beginnerMark;
+
+        Tier(String mark) {
+            this.mark = mark;
+            this.beginnerMark = " " + mark;
+        }
+
+        /**
+         * 表示名の後ろに付けるマークを返す
+         * @return マーク（色コードを含む）、マークなしの場合は空文字
+         */
+        public String getMark() {
+            return mark;
+        }
+
+        /**
+         * メッセージの後ろに付けるマーク（先頭に空白を含む）を返す
+         * @return マーク
+         */
+        public String getBeginnerMark() {
+            return beginnerMark;
+        }
+
+        /**
+         * プレイ時間から段階を求める
+         * @param playTicks プレイ時間（tick）
+         * @return 段階
+         */
+        public static Tier fromPlayTicks(long playTicks) {
+            if (playTicks <= TWO_HOURS_TICKS) {
+                return NEWCOMER;
+            }
+            if (playTicks <= SIX_HOURS_TICKS) {
+                return BEGINNER;
+            }
+            return NONE;
+        }
+    }
+
+    private final ConcurrentHashMap<UUID, Tier> tiers = new ConcurrentHashMap<>();
+
+    /**
+     * プレイヤーの段階を計算し直す（プレイヤーを操作できるスレッドから呼び出す）
+     * @param player プレイヤー
+     */
+    public void update(Player player) {
+        tiers.put(player.getUniqueId(), Tier.fromPlayTicks(player.getStatistic(Statistic.PLAY_ONE_MINUTE)));
+    }
+
+    /**
+     * プレイヤーの段階を返す
+     * @param uuid プレイヤーのUUID
+     * @return 段階、読み込まれていない場合はマークなし
+     */
+    public Tier get(UUID uuid) {
+        return tiers.getOrDefault(uuid, Tier.NONE);
+    }
+
+    /**
+     * プレイヤーを取り除く
+     * @param uuid プレイヤーのUUID
+     */
+    public void remove(UUID uuid) {
+        tiers.remove(uuid);
+    }
+}
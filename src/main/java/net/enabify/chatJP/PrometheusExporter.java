@@ -0,0 +1,114 @@
+package net.enabify.chatJP;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * {@link ChatMetrics}の集計をPrometheusのテキスト形式で公開するクラス
+ * 一定間隔でファイル（node_exporterのtextfileコレクター向け）に書き出すか、
+ * localhostのHTTPで /metrics として公開します。
+ */
+public class PrometheusExporter {
+
+    private final Logger logger;
+    private final File file;
+    private final long intervalMillis;
+    private final int port;
+
+    private ScheduledExecutorService executor;
+    private HttpServer server;
+
+    /**
+     * コンストラクタ
+     * @param logger ロガー
+     * @param file 書き出すファイル、nullの場合は書き出さない
+     * @param intervalMillis ファイルに書き出す間隔（ミリ秒）
+     * @param port HTTPで公開するポート、0の場合は公開しない
+     */
+    public PrometheusExporter(Logger logger, File file, long intervalMillis, int port) {
+        this.logger = logger;
+        this.file = file;
+        this.intervalMillis = Math.max(1000L, intervalMillis);
+        this.port = port;
+    }
+
+    /**
+     * 公開を開始する
+     */
+    public synchronized void start() {
+        if (file != null && executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "ChatJP-Metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleWithFixedDelay(this::writeFile, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+
+        if (port > 0 && server == null) {
+            try {
+                // 外部には公開しない
+                server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+                server.createContext("/metrics", exchange -> {
+                    byte[] body = ChatMetrics.toPrometheus().getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                });
+                server.start();
+                logger.info("メトリクスを http://localhost:" + port + "/metrics で公開しました");
+            } catch (IOException e) {
+                server = null;
+                logger.warning("メトリクスのHTTPサーバーを開始できませんでした: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 公開を停止する
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+            writeFile();
+        }
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    // 一時ファイルに書いてから置き換えるので、読み込み中のファイルが途中で切れることはない
+    private void writeFile() {
+        Path target = file.toPath().toAbsolutePath();
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+            try {
+                Files.write(temp, ChatMetrics.toPrometheus().getBytes(StandardCharsets.UTF_8));
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+        } catch (IOException e) {
+            logger.warning("メトリクスの書き出しに失敗しました: " + e.getMessage());
+        }
+    }
+}
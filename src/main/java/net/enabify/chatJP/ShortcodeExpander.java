@@ -0,0 +1,244 @@
+package net.enabify.chatJP;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+/**
+ * 短縮コード（52、08など）を、登録された文章のどれかに置き換えるクラス
+ * コードと文章は読み込み時に変更不可のマップにまとめるので、
+ * 置き換えはメッセージごとの検索1回と乱数1回だけで行えます。
+ *
+ * config.ymlの形式:
+ * <pre>
+ * shortcodes:
+ *   "52":
+ *     - こんにちは
+ *     - text: こんです^^
+ *       weight: 3
+ * </pre>
+ * weightを省略した文章の重みは1です。重みは1から{@link #MAX_WEIGHT}の整数で指定します。
+ */
+public class ShortcodeExpander {
+
+    /** 文章の重みの上限 */
+    public static final int MAX_WEIGHT = 1_000_000;
+
+    private static final ShortcodeExpander EMPTY = new ShortcodeExpander(new HashMap<>());
+
+    private final Map<String, Variants> codes;
+
+    private ShortcodeExpander(Map<String, Variants> codes) {
+        this.codes = Map.copyOf(codes);
+    }
+
+    /**
+     * 短縮コードを置き換える
+     * @param message メッセージ（前後の空白は無視する）
+     * @return 置き換えた文章、短縮コードでない場合はnull
+     */
+    public String expand(String message) {
+        Variants variants = codes.get(message.trim());
+        return variants == null ? null : variants.pick();
+    }
+
+    /**
+     * 登録されている短縮コードの数を返す
+     * @return コードの数
+     */
+    public int size() {
+        return codes.size();
+    }
+
+    /**
+     * 短縮コードがないものを返す
+     * @return 置き換えを行わないもの
+     */
+    public static ShortcodeExpander empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 文章の一覧から作成する（重みは全て1）
+     * @param codes 短縮コードと文章の一覧
+     * @return 作成したもの
+     */
+    public static ShortcodeExpander of(Map<String, List<String>> codes) {
+        Map<String, Variants> result = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : codes.entrySet()) {
+            Variants.Builder builder = new Variants.Builder();
+            for (String text : entry.getValue()) {
+                builder.add(text, 1);
+            }
+            if (builder.size() > 0) {
+                result.put(entry.getKey().trim(), builder.build());
+            }
+        }
+        return new ShortcodeExpander(result);
+    }
+
+    /**
+     * 設定から作成する
+     * @param section shortcodesのセクション
+     * @param logger 読み込めない項目を報告するロガー
+     * @return 作成したもの
+     */
+    public static ShortcodeExpander load(ConfigurationSection section, Logger logger) {
+        Map<String, Variants> result = new HashMap<>();
+        for (String code : section.getKeys(false)) {
+            List<?> list = section.getList(code);
+            if (list == null) {
+                logger.warning("短縮コード「" + code + "」の文章がリストではありません");
+                continue;
+            }
+
+            Variants.Builder builder = new Variants.Builder();
+            for (Object item : list) {
+                String text;
+                long weight = 1;
+                if (item instanceof Map) {
+                    Map<?, ?> map = (Map<?, ?>) item;
+                    Object value = map.get("text");
+                    if (value == null) {
+                        logger.warning("短縮コード「" + code + "」にtextのない文章があります");
+                        continue;
+                    }
+                    text = value.toString();
+                    Object weightValue = map.get("weight");
+                    if (weightValue != null) {
+                        // 整数以外（小数や文字列、longに収まらない数）は不正な値として扱う
+                        weight = weightValue instanceof Integer || weightValue instanceof Long
+                                ? ((Number) weightValue).longValue() : -1;
+                    }
+                    if (weight < 1 || weight > MAX_WEIGHT) {
+                        logger.warning("短縮コード「" + code + "」の文章「" + text + "」の重み（" + weightValue
+                                + "）は1から" + MAX_WEIGHT + "の整数ではないため無視します");
+                        continue;
+                    }
+                } else if (item != null) {
+                    text = item.toString();
+                } else {
+                    continue;
+                }
+
+                if (!builder.add(text, (int) weight)) {
+                    logger.warning("短縮コード「" + code + "」の重みの合計が大きすぎるため、文章「" + text + "」以降を無視します");
+                    break;
+                }
+            }
+            if (builder.size() > 0) {
+                result.put(code.trim(), builder.build());
+            }
+        }
+        return new ShortcodeExpander(result);
+    }
+
+    /**
+     * 既定の短縮コードを返す
+     * @return 短縮コードと文章の一覧（設定ファイルに書き出す順序）
+     */
+    public static Map<String, List<String>> defaultCodes() {
+        Map<String, List<String>> codes = new LinkedHashMap<>();
+        codes.put("52", Arrays.asList(
+                "こんにちは", "こんにちは！", "こんにちは^^", "こんにちはー", "こんにちは～",
+                "こんです", "こんです！", "こんです^^", "こんですー", "こんです～"));
+        codes.put("08", Arrays.asList(
+                "おはようございます", "おはようございます！", "おはようございます^^",
+                "おはようございます～", "おはようございますー",
+                "おはです", "おはです！", "おはです^^", "おはです～", "おはですー"));
+        codes.put("58", Arrays.asList(
+                "こんばんは", "こんばんは！", "こんばんは^^", "こんばんは～", "こんばんはー",
+                "こんです", "こんです！", "こんです^^", "こんですー", "こんです～"));
+        codes.put("082", Arrays.asList(
+                "新規さんよろしくです！", "新規さんよろしくです^^", "新規さんよろしくです～",
+                "新規さん初めまして！", "新規さん初めまして", "新規さん初めまして～",
+                "お初さんこんにちは！", "お初さんこんにちは^^", "お初さんこんにちは～",
+                "お初さんよろしくお願いします", "お初さんよろしくお願いします！", "お初さんよろしくお願いします～",
+                "初見さんいらっしゃい！", "初見さんいらっしゃい", "初見さんいらっしゃい～",
+                "よろしくね！", "よろしくね^^", "よろしくね～",
+                "よろしくお願いします", "よろしくお願いします", "よろしくお願いします～",
+                "はじめまして！", "はじめまして^^", "はじめまして～",
+                "これからよろしくお願いします", "これからよろしくお願いします！"));
+        return codes;
+    }
+
+    // 1つの短縮コードの文章と重み
+    private static final class Variants {
+        private final String[] texts;
+        // 重みの累積和（全て同じ重みの場合はnull）
+        private final int[] cumulative;
+        private final int total;
+
+        Variants(String[] texts, int[] cumulative, int total) {
+            this.texts = texts;
+            this.cumulative = cumulative;
+            this.total = total;
+        }
+
+        String pick() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (cumulative == null) {
+                return texts[random.nextInt(texts.length)];
+            }
+
+            // 累積和を二分探索して、重みに応じて選ぶ
+            int r = random.nextInt(total);
+            int low = 0;
+            int high = cumulative.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulative[mid] > r) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return texts[low];
+        }
+
+        static final class Builder {
+            private String[] texts = new String[8];
+            private int[] weights = new int[8];
+            private int size;
+            private long total;
+
+            // 重みの合計がintに収まらない場合は追加せずにfalseを返す
+            boolean add(String text, int weight) {
+                if (weight <= 0 || total + weight > Integer.MAX_VALUE) {
+                    return false;
+                }
+                if (size == texts.length) {
+                    texts = Arrays.copyOf(texts, size * 2);
+                    weights = Arrays.copyOf(weights, size * 2);
+                }
+                texts[size] = text;
+                weights[size] = weight;
+                size++;
+                total += weight;
+                return true;
+            }
+
+            int size() {
+                return size;
+            }
+
+            Variants build() {
+                boolean uniform = true;
+                int[] cumulative = new int[size];
+                int total = 0;
+                for (int i = 0; i < size; i++) {
+                    uniform &= weights[i] == weights[0];
+                    total += weights[i];
+                    cumulative[i] = total;
+                }
+                return new Variants(Arrays.copyOf(texts, size), uniform ? null : cumulative, total);
+            }
+        }
+    }
+}
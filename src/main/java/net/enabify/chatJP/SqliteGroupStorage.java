@@ -0,0 +1,119 @@
+package net.enabify.chatJP;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 所属グループをSQLiteのデータベースに保存する保存先
+ * プレイヤーごとに読み書きするので、起動時間やメモリ使用量は登録されたプレイヤーの数によりません。
+ * SQLiteのJDBCドライバーはPaper（Spigot）に同梱されているものを使います。
+ */
+public class SqliteGroupStorage implements GroupStorage {
+
+    private final Connection connection;
+    private final PreparedStatement select;
+    private final PreparedStatement upsert;
+    private final PreparedStatement delete;
+
+    /**
+     * コンストラクタ（データベースがなければ作成する）
+     * @param file データベースのファイル
+     * @throws IOException データベースを開けなかった場合
+     */
+    public SqliteGroupStorage(File file) throws IOException {
+        file.getParentFile().mkdirs();
+        try {
+            Class.forName("org.sqlite.JDBC");
+            connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("CREATE TABLE IF NOT EXISTS player_groups ("
+                        + "uuid TEXT PRIMARY KEY NOT NULL, "
+                        + "group_id TEXT NOT NULL)");
+            }
+            select = connection.prepareStatement("SELECT group_id FROM player_groups WHERE uuid = ?");
+            upsert = connection.prepareStatement("INSERT INTO player_groups (uuid, group_id) VALUES (?, ?) "
+                    + "ON CONFLICT(uuid) DO UPDATE SET group_id = excluded.group_id");
+            delete = connection.prepareStatement("DELETE FROM player_groups WHERE uuid = ?");
+        } catch (ClassNotFoundException e) {
+            throw new IOException("SQLiteのJDBCドライバーが見つかりません", e);
+        } catch (SQLException e) {
+            throw new IOException("データベースを開けませんでした: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized String load(UUID uuid) throws IOException {
+        try {
+            select.setString(1, uuid.toString());
+            try (ResultSet result = select.executeQuery()) {
+                return result.next() ? result.getString(1) : null;
+            }
+        } catch (SQLException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void save(Map<UUID, String> changes) throws IOException {
+        try {
+            // まとめて1つのトランザクションで書き込む
+            connection.setAutoCommit(false);
+            try {
+                for (Map.Entry<UUID, String> change : changes.entrySet()) {
+                    if (change.getValue() == null) {
+                        delete.setString(1, change.getKey().toString());
+                        delete.addBatch();
+                    } else {
+                        upsert.setString(1, change.getKey().toString());
+                        upsert.setString(2, change.getValue());
+                        upsert.addBatch();
+                    }
+                }
+                delete.executeBatch();
+                upsert.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                delete.clearBatch();
+                upsert.clearBatch();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * データベースが空かどうか
+     * @return 1人も登録されていない場合true
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public synchronized boolean isEmpty() throws IOException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT 1 FROM player_groups LIMIT 1")) {
+            return !result.next();
+        } catch (SQLException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package net.enabify.chatJP;
+
+/**
+ * NGワードの照合用に文字列を正規化するクラス
+ * 全角英数字は半角に、半角カタカナは全角に、カタカナはひらがなに、英大文字は小文字にそろえ、
+ * 文字・数字以外（空白や記号）は取り除きます。
+ * 正規化後の各文字が、元の文字列のどの範囲から作られたかも記録します。
+ */
+public class TextNormalizer {
+
+    // 半角カタカナ（U+FF61〜U+FF9F）に対応する全角文字
+    private static final String HALFWIDTH_KANA =
+            "。「」、・ヲァィゥェォャュョッーアイウエオカキクケコサシスセソタチツテト"
+            + "ナニヌネノハヒフヘホマミムメモヤユヨラリルレロワン゛゜";
+
+    // 濁点・半濁点を付けられるひらがな
+    private static final String VOICEABLE = "かきくけこさしすせそたちつてとはひふへほ";
+    private static final String SEMI_VOICEABLE = "はひふへほ";
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * 文字列を正規化する
+     * @param text 元の文字列
+     * @return 正規化した文字列
+     */
+    public static String normalize(CharSequence text) {
+        char[] out = new char[text.length()];
+        int length = normalize(text, out, null, null);
+        return new String(out, 0, length);
+    }
+
+    /**
+     * 文字列を正規化し、各文字の元の範囲を記録する
+     * @param text 元の文字列
+     * @param out 正規化した文字を書き込む配列（text以上の長さが必要）
+     * @param starts 各文字の元の開始位置を書き込む配列（不要ならnull）
+     * @param ends 各文字の元の終了位置を書き込む配列（不要ならnull）
+     * @return 正規化した文字列の長さ
+     */
+    public static int normalize(CharSequence text, char[] out, int[] starts, int[] ends) {
+        int length = 0;
+        int last = -1; // 直前に書き込んだ文字の元の位置
+        for (int i = 0; i < text.length(); i++) {
+            char c = fold(text.charAt(i));
+
+            if (c == '゛' || c == '゜' || c == '\u3099' || c == '\u309A') {
+                // 直前の文字に続く濁点・半濁点は、1文字に合成する
+                if (length > 0 && last == i - 1) {
+                    char composed = compose(out[length - 1], c == '゛' || c == '\u3099');
+                    if (composed != 0) {
+                        out[length - 1] = composed;
+                        if (ends != null) {
+                            ends[length - 1] = i + 1;
+                        }
+                        last = i;
+                    }
+                }
+                continue;
+            }
+
+            if (!Character.isLetterOrDigit(c)) {
+                continue; // 間に挟まれた記号や空白は無視する
+            }
+
+            out[length] = c;
+            if (starts != null) {
+                starts[length] = i;
+            }
+            if (ends != null) {
+                ends[length] = i + 1;
+            }
+            length++;
+            last = i;
+        }
+        return length;
+    }
+
+    // 1文字を正規化する
+    private static char fold(char c) {
+        if (c >= '！' && c <= '～') {
+            c = (char) (c - 0xFEE0); // 全角英数字・記号
+        } else if (c >= '｡' && c <= 'ﾟ') {
+            c = HALFWIDTH_KANA.charAt(c - 0xFF61);
+        }
+
+        if (c >= 'A' && c <= 'Z') {
+            return (char) (c + ('a' - 'A'));
+        }
+        if (c >= 'ァ' && c <= 'ヶ') {
+            return (char) (c - ('ァ' - 'ぁ'));
+        }
+        return c;
+    }
+
+    // 濁点・半濁点を付けた文字を返す（付けられない場合は0）
+    private static char compose(char c, boolean voiced) {
+        if (voiced) {
+            if (c == 'う') {
+                return 'ゔ';
+            }
+            return VOICEABLE.indexOf(c) != -1 ? (char) (c + 1) : 0;
+        }
+        return SEMI_VOICEABLE.indexOf(c) != -1 ? (char) (c + 2) : 0;
+    }
+}
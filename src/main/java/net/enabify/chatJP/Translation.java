@@ -0,0 +1,70 @@
+package net.enabify.chatJP;
+
+/**
+ * メッセージを日本語化した結果
+ * 表示する文字列と、変換の途中経過（カナ変換・漢字変換の結果と変換エンジン）を保持します。
+ * 他のサーバーに変換結果を共有し、同じ文章を変換し直さないようにするために使います。
+ */
+public class Translation {
+
+    private final String original;
+    private final String kana;
+    private final String kanji;
+    private final JapanizeType engine;
+    private final String text;
+
+    /**
+     * コンストラクタ
+     * @param original 変換元（ローマ字）
+     * @param kana カナ変換の結果（漢字変換エンジンに渡した文字列）、変換しなかった場合は空文字
+     * @param kanji 漢字変換エンジンの結果、変換しなかったか失敗した場合は空文字
+     * @param engine 漢字変換をしたエンジン、カナ変換のみの場合はKANA、変換しなかった場合はNONE
+     * @param text 表示する文字列
+     */
+    public Translation(String original, String kana, String kanji, JapanizeType engine, String text) {
+        this.original = original;
+        this.kana = kana;
+        this.kanji = kanji;
+        this.engine = engine;
+        this.text = text;
+    }
+
+    /**
+     * 日本語化しなかった結果を作成する
+     * @param original 元のメッセージ
+     * @param text 表示する文字列
+     * @return 結果
+     */
+    public static Translation untranslated(String original, String text) {
+        return new Translation(original, "", "", JapanizeType.NONE, text);
+    }
+
+    public String getOriginal() {
+        return original;
+    }
+
+    public String getKana() {
+        return kana;
+    }
+
+    public String getKanji() {
+        return kanji;
+    }
+
+    public JapanizeType getEngine() {
+        return engine;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * 表示する文字列だけを置き換えた結果を返す
+     * @param text 表示する文字列
+     * @return 結果
+     */
+    public Translation withText(String text) {
+        return new Translation(original, kana, kanji, engine, text);
+    }
+}
@@ -0,0 +1,88 @@
+package net.enabify.chatJP;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * 所属グループをYAMLファイル（data.yml）に保存する保存先
+ * YAMLは一部だけを読み書きできないため、起動時にファイル全体を読み込み、書き込みのたびに全体を書き直します。
+ */
+public class YamlGroupStorage implements GroupStorage {
+
+    private final File file;
+    private final YamlConfiguration data = new YamlConfiguration();
+
+    /**
+     * コンストラクタ（ファイルがなければ作成する）
+     * @param file 保存先のファイル
+     * @param logger ロガー
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public YamlGroupStorage(File file, Logger logger) throws IOException {
+        this.file = file;
+
+        if (!file.exists()) {
+            file.getParentFile().mkdirs();
+            if (file.createNewFile()) {
+                logger.info(file.getName() + " ファイルを新規作成しました。");
+            }
+        }
+
+        try {
+            data.load(file);
+        } catch (InvalidConfigurationException e) {
+            throw new IOException(file.getName() + " の形式が正しくありません: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized String load(UUID uuid) {
+        return data.getString(uuid.toString());
+    }
+
+    @Override
+    public synchronized void save(Map<UUID, String> changes) throws IOException {
+        for (Map.Entry<UUID, String> change : changes.entrySet()) {
+            data.set(change.getKey().toString(), change.getValue());
+        }
+
+        // 一時ファイルに書いてから置き換えるので、途中で失敗しても元のファイルは壊れない
+        Path target = file.toPath();
+        Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), file.getName(), ".tmp");
+        try {
+            Files.write(temp, data.saveToString().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * 保存されている全ての所属グループを、別の保存先に移す
+     * @param target 移行先
+     * @return 移行した件数
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public synchronized int copyTo(GroupStorage target) throws IOException {
+        Map<UUID, String> all = new HashMap<>();
+        for (String key : data.getKeys(false)) {
+            try {
+                all.put(UUID.fromString(key), data.getString(key));
+            } catch (IllegalArgumentException ignored) {}
+        }
+        target.save(all);
+        return all.size();
+    }
+}
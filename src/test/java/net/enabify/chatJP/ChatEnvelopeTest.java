@@ -0,0 +1,216 @@
+package net.enabify.chatJP;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * ChatEnvelopeのバイナリ形式とJSON形式の読み書きのテスト
+ */
+class ChatEnvelopeTest {
+
+    private static final byte MAGIC = (byte) 0xCA;
+
+    @Test
+    void binaryRoundTripWithTranslation() {
+        Translation translation = new Translation("konnnichiha", "こんにちは", "今日は",
+                JapanizeType.GOOGLE_IME, "今日は");
+        ChatEnvelope envelope = new ChatEnvelope("server-1", "Alice", "今日は (konnnichiha)",
+                1_700_000_000_000L, translation);
+
+        ChatEnvelope decoded = ChatEnvelope.decode(envelope.toBytes());
+
+        assertEquals("server-1", decoded.getSenderId());
+        assertEquals("Alice", decoded.getPlayerName());
+        assertEquals("今日は (konnnichiha)", decoded.getMessage());
+        assertEquals(1_700_000_000_000L, decoded.getTimestamp());
+        assertEquals("konnnichiha", decoded.getOriginal());
+        assertEquals("こんにちは", decoded.getKana());
+        assertEquals("今日は", decoded.getKanji());
+        assertEquals(JapanizeType.GOOGLE_IME, decoded.getEngine());
+    }
+
+    @Test
+    void binaryRoundTripWithoutTranslation() {
+        ChatEnvelope envelope = new ChatEnvelope(null, "Bob", "", 0L, null);
+
+        ChatEnvelope decoded = ChatEnvelope.decode(envelope.toBytes());
+
+        assertEquals("", decoded.getSenderId());
+        assertEquals("Bob", decoded.getPlayerName());
+        assertEquals("", decoded.getMessage());
+        assertEquals(0L, decoded.getTimestamp());
+        assertEquals("", decoded.getOriginal());
+        assertEquals("", decoded.getKana());
+        assertEquals("", decoded.getKanji());
+        assertEquals(JapanizeType.NONE, decoded.getEngine());
+    }
+
+    @Test
+    void varintEdgeCases() {
+        // 7ビットごとの境界と、負の数（10バイトになる）
+        long[] timestamps = {0L, 1L, 127L, 128L, 16_383L, 16_384L, Integer.MAX_VALUE, Long.MAX_VALUE, -1L, Long.MIN_VALUE};
+        for (long timestamp : timestamps) {
+            ChatEnvelope decoded = ChatEnvelope.fromBytes(new ChatEnvelope("s", "p", "m", timestamp).toBytes());
+            assertEquals(timestamp, decoded.getTimestamp(), Long.toString(timestamp));
+        }
+
+        // 長さが1バイトに収まらない文字列
+        char[] chars = new char[300];
+        Arrays.fill(chars, 'あ');
+        String longMessage = new String(chars);
+        assertEquals(longMessage, ChatEnvelope.fromBytes(new ChatEnvelope("s", "p", longMessage, 1L).toBytes()).getMessage());
+    }
+
+    @Test
+    void decodesVersion1Payload() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(MAGIC);
+        out.write(1);
+        writeVarLong(out, 300L);
+        writeString(out, "server-1");
+        writeString(out, "Alice");
+        writeString(out, "こんにちは");
+
+        ChatEnvelope decoded = ChatEnvelope.decode(out.toByteArray());
+
+        assertEquals("server-1", decoded.getSenderId());
+        assertEquals("Alice", decoded.getPlayerName());
+        assertEquals("こんにちは", decoded.getMessage());
+        assertEquals(300L, decoded.getTimestamp());
+        assertEquals("", decoded.getKana());
+        assertEquals(JapanizeType.NONE, decoded.getEngine());
+    }
+
+    @Test
+    void skipsFieldsAddedByNewerVersions() {
+        byte[] current = new ChatEnvelope("s", "p", "m", 5L, Translation.untranslated("m", "m")).toBytes();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(current, 0, current.length);
+        writeString(out, "新しい項目");
+        byte[] newer = out.toByteArray();
+        newer[1] = 3;
+
+        ChatEnvelope decoded = ChatEnvelope.decode(newer);
+
+        assertEquals("m", decoded.getMessage());
+        assertEquals(JapanizeType.NONE, decoded.getEngine());
+    }
+
+    @Test
+    void decodesOldJson() {
+        // 変換の途中経過を含まない、以前のバージョンのJSON
+        ChatEnvelope decoded = ChatEnvelope.decode(
+                "{\"playerName\":\"Alice\",\"message\":\"こんにちは\",\"senderId\":\"server-1\",\"timestamp\":42}");
+
+        assertEquals("server-1", decoded.getSenderId());
+        assertEquals("Alice", decoded.getPlayerName());
+        assertEquals("こんにちは", decoded.getMessage());
+        assertEquals(42L, decoded.getTimestamp());
+        assertEquals("", decoded.getOriginal());
+        assertEquals(JapanizeType.NONE, decoded.getEngine());
+
+        // senderIdとtimestampもない場合
+        ChatEnvelope minimal = ChatEnvelope.decode("{\"playerName\":\"Bob\",\"message\":\"hi\"}");
+        assertEquals("", minimal.getSenderId());
+        assertEquals(0L, minimal.getTimestamp());
+    }
+
+    @Test
+    void jsonRoundTripWithTranslation() {
+        Translation translation = new Translation("kyou", "きょう", "今日", JapanizeType.OFFLINE_DICT, "今日");
+        ChatEnvelope envelope = new ChatEnvelope("server-2", "Carol", "今日 (kyou)", 7L, translation);
+
+        ChatEnvelope decoded = ChatEnvelope.decode(envelope.encode(ChatEnvelope.Format.JSON));
+
+        assertEquals("server-2", decoded.getSenderId());
+        assertEquals("今日 (kyou)", decoded.getMessage());
+        assertEquals("kyou", decoded.getOriginal());
+        assertEquals("きょう", decoded.getKana());
+        assertEquals("今日", decoded.getKanji());
+        assertEquals(JapanizeType.OFFLINE_DICT, decoded.getEngine());
+    }
+
+    @Test
+    void rejectsBadMagicAndVersion() {
+        byte[] data = new ChatEnvelope("s", "p", "m", 1L).toBytes();
+
+        byte[] badMagic = data.clone();
+        badMagic[0] = '{';
+        assertThrows(IllegalArgumentException.class, () -> ChatEnvelope.decode(badMagic));
+
+        byte[] badVersion = data.clone();
+        badVersion[1] = 0;
+        assertThrows(IllegalArgumentException.class, () -> ChatEnvelope.decode(badVersion));
+
+        assertThrows(IllegalArgumentException.class, () -> ChatEnvelope.decode(new byte[0]));
+        assertThrows(IllegalArgumentException.class, () -> ChatEnvelope.decode(new byte[]{MAGIC}));
+    }
+
+    @Test
+    void rejectsTruncatedBuffers() {
+        Translation translation = new Translation("kyou", "きょう", "今日", JapanizeType.GOOGLE_IME, "今日");
+        byte[] data = new ChatEnvelope("server-1", "Alice", "今日 (kyou)", Long.MIN_VALUE, translation).toBytes();
+
+        // どこで途切れても、配列の範囲外ではなく形式の誤りとして扱う
+        for (int length = 0; length < data.length; length++) {
+            byte[] truncated = Arrays.copyOf(data, length);
+            assertThrows(IllegalArgumentException.class, () -> ChatEnvelope.decode(truncated), "length " + length);
+        }
+    }
+
+    @Test
+    void rejectsLengthsLargerThanRemainingBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(MAGIC);
+        out.write(2);
+        writeVarLong(out, 1L);
+        writeVarLong(out, 1000L);
+        out.write('s');
+        assertThrows(IllegalArgumentException.class, () -> ChatEnvelope.decode(out.toByteArray()));
+
+        // intに収まらない長さと、負の数になる長さ
+        for (long length : new long[]{Integer.MAX_VALUE + 1L, Long.MAX_VALUE, -1L}) {
+            ByteArrayOutputStream huge = new ByteArrayOutputStream();
+            huge.write(MAGIC);
+            huge.write(2);
+            writeVarLong(huge, 1L);
+            writeVarLong(huge, length);
+            assertThrows(IllegalArgumentException.class, () -> ChatEnvelope.decode(huge.toByteArray()),
+                    Long.toString(length));
+        }
+
+        // 終わらない数値
+        byte[] endless = new byte[16];
+        Arrays.fill(endless, (byte) 0x80);
+        endless[0] = MAGIC;
+        endless[1] = 2;
+        assertThrows(IllegalArgumentException.class, () -> ChatEnvelope.decode(endless));
+    }
+
+    @Test
+    void rejectsBrokenJson() {
+        assertThrows(IllegalArgumentException.class, () -> ChatEnvelope.decode("not json"));
+        assertThrows(IllegalArgumentException.class, () -> ChatEnvelope.decode("{\"message\":\"no player\"}"));
+        assertThrows(IllegalArgumentException.class, () -> ChatEnvelope.decode(null));
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+}
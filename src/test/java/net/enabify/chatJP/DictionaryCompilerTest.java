@@ -0,0 +1,114 @@
+package net.enabify.chatJP;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * DictionaryCompilerで作成したバイナリ辞書を、MappedDictionaryで引けることのテスト
+ */
+class DictionaryCompilerTest {
+
+    private static final String HIRAGANA =
+            "あいうえおかきくけこさしすせそたちつてとなにぬねのはひふへほまみむめもやゆよらりるれろわをん"
+            + "がぎぐげござじずぜぞだぢづでどばびぶべぼぱぴぷぺぽぁぃぅぇぉっゃゅょー";
+
+    @Test
+    void randomReadingsRoundTrip() throws IOException {
+        for (long seed = 1; seed <= 10; seed++) {
+            roundTrip(new Random(seed), 300, 14);
+        }
+    }
+
+    @Test
+    void largeDictionaryRoundTrip() throws IOException {
+        roundTrip(new Random(42), 5000, 8);
+    }
+
+    @Test
+    void emptyDictionary() throws IOException {
+        Map<String, String> words = new TreeMap<>();
+        MappedDictionary dictionary = compile(words);
+
+        assertEquals(0, dictionary.size());
+        assertEquals(0, dictionary.commonPrefixSearch("あいう", 0, new int[8], new int[8]));
+    }
+
+    private static void roundTrip(Random random, int count, int maxLength) throws IOException {
+        Map<String, String> words = new TreeMap<>();
+        while (words.size() < count) {
+            int length = 1 + random.nextInt(maxLength);
+            StringBuilder reading = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                reading.append(HIRAGANA.charAt(random.nextInt(HIRAGANA.length())));
+            }
+            words.put(reading.toString(), "候補" + words.size());
+        }
+
+        MappedDictionary dictionary = compile(words);
+        assertEquals(words.size(), dictionary.size());
+
+        int[] lengths = new int[64];
+        int[] entries = new int[64];
+        for (Map.Entry<String, String> word : words.entrySet()) {
+            // 見出し語の前に余計な文字を付けても、開始位置から検索できる
+            String text = "x" + word.getKey() + "ん";
+            int found = dictionary.commonPrefixSearch(text, 1, lengths, entries);
+
+            // 見出し語の接頭辞のうち、登録されているものが短い順に全て見つかる
+            List<String> expected = new ArrayList<>();
+            for (int end = 2; end <= text.length(); end++) {
+                if (words.containsKey(text.substring(1, end))) {
+                    expected.add(text.substring(1, end));
+                }
+            }
+            List<String> actual = new ArrayList<>();
+            for (int k = 0; k < found; k++) {
+                String reading = text.substring(1, 1 + lengths[k]);
+                actual.add(reading);
+
+                StringBuilder candidate = new StringBuilder();
+                dictionary.appendCandidate(entries[k], candidate);
+                assertEquals(words.get(reading), candidate.toString(), reading);
+            }
+            assertEquals(expected, actual, word.getKey());
+        }
+
+        // 登録されていない読みは、登録されている接頭辞しか見つからない
+        TreeSet<String> readings = new TreeSet<>(words.keySet());
+        for (int n = 0; n < 200; n++) {
+            String text = "ゔ" + readings.first() + n;
+            assertEquals(0, dictionary.commonPrefixSearch(text, 0, lengths, entries), text);
+        }
+    }
+
+    private static MappedDictionary compile(Map<String, String> words) throws IOException {
+        Path source = Files.createTempFile("chatjp-dictionary", ".txt");
+        Path output = Files.createTempFile("chatjp-dictionary", ".dat");
+        try {
+            List<String> lines = new ArrayList<>();
+            for (Map.Entry<String, String> word : words.entrySet()) {
+                lines.add(word.getKey() + "\t" + word.getValue());
+            }
+            Files.write(source, lines, StandardCharsets.UTF_8);
+
+            assertEquals(words.size(), DictionaryCompiler.compile(source, output));
+            return MappedDictionary.open(output);
+        } finally {
+            // マップした領域はファイルを削除した後も読める
+            Files.delete(source);
+            Files.delete(output);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package net.enabify.chatJP;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * DictionaryConverterが、読み込んだ辞書のコストで文章を変換できることのテスト
+ */
+class DictionaryConverterTest {
+
+    @Test
+    void convertsSentenceWithTsvDictionary() throws IOException {
+        DictionaryConverter converter = converterOf(
+                "きょう\t今日",
+                "いい\t良い",
+                "てんき\t天気",
+                "き\t木",
+                "め\t目",
+                "とじる\t閉じる");
+
+        assertEquals("今日は良い天気", converter.conv("きょうはいいてんき"));
+        assertEquals("目を閉じる", converter.conv("めをとじる"));
+        assertEquals("木", converter.conv("き"));
+    }
+
+    @Test
+    void convertsSentenceWithMozcDictionary() throws IOException {
+        DictionaryConverter converter = converterOf(
+                "ほんじつ\t1\t1\t7000\t本日",
+                "は\t2\t2\t1000\tは",
+                "せいてん\t1\t1\t6500\t晴天",
+                "せい\t1\t1\t5000\t性",
+                "てん\t1\t1\t5000\t点",
+                "です\t3\t3\t800\tです");
+
+        assertEquals("本日は晴天です", converter.conv("ほんじつはせいてんです"));
+    }
+
+    @Test
+    void convertsWithSkkDictionary() throws IOException {
+        DictionaryConverter converter = converterOf(
+                ";; okuri-nasi entries.",
+                "て /手/",
+                "あし /足/葦/",
+                "あらう /洗う/");
+
+        assertEquals("手と足を洗う", converter.conv("てとあしをあらう"));
+    }
+
+    @Test
+    void mozcCostsAreScaledIntoRange() {
+        assertEquals(0, DictionaryReader.scaleMozcCost(-5));
+        assertEquals(DictionaryReader.MAX_COST, DictionaryReader.scaleMozcCost(Integer.MAX_VALUE));
+        assertTrue(DictionaryReader.scaleMozcCost(3000) < DictionaryReader.scaleMozcCost(6000));
+    }
+
+    // 辞書ファイルを読み込み、そのエントリを線形に検索する辞書で変換器を作る
+    private static DictionaryConverter converterOf(String... lines) throws IOException {
+        Path file = Files.createTempFile("chatjp-dictionary", ".txt");
+        try {
+            Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+            return new DictionaryConverter(new ListDictionary(DictionaryReader.read(file)));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static final class ListDictionary implements KanaDictionary {
+        private final List<DictionaryReader.Entry> entries;
+
+        ListDictionary(List<DictionaryReader.Entry> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public int commonPrefixSearch(CharSequence text, int start, int[] lengths, int[] found) {
+            int count = 0;
+            String rest = text.subSequence(start, text.length()).toString();
+            for (int i = 0; i < entries.size() && count < lengths.length; i++) {
+                if (rest.startsWith(entries.get(i).reading)) {
+                    lengths[count] = entries.get(i).reading.length();
+                    found[count] = i;
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public int cost(int entry) {
+            return entries.get(entry).cost;
+        }
+
+        @Override
+        public void appendCandidate(int entry, StringBuilder out) {
+            out.append(entries.get(entry).candidate);
+        }
+
+        @Override
+        public int size() {
+            return entries.size();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package net.enabify.chatJP;
+
+import org.bukkit.entity.Player;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * GroupRegistryとGroupMembersの、グループの状態の変化の通知のテスト
+ */
+class GroupRegistryTest {
+
+    @Test
+    void notifiesActivationAndDeactivation() {
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        GroupRegistry registry = new GroupRegistry(recording(events));
+        Player alice = player();
+        Player bob = player();
+
+        registry.load(alice.getUniqueId(), null);
+        registry.load(bob.getUniqueId(), "1");
+        registry.online(alice);
+        registry.online(bob);
+        registry.setGroup(alice, "1");
+        registry.setGroup(alice, "2");
+        registry.offline(bob.getUniqueId());
+        registry.setGroup(alice, null);
+
+        assertEquals(List.of("+1", "+2", "-1", "-2"), events);
+        assertTrue(registry.getMembers().getGroups().isEmpty());
+    }
+
+    @Test
+    void listenerCanUseRegistry() {
+        // 通知の中から、別のプレイヤーのグループを変更したり索引を参照したりする
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        Player bob = player();
+        GroupRegistry[] registry = new GroupRegistry[1];
+        registry[0] = new GroupRegistry(new GroupMembers.Listener() {
+            @Override
+            public void activated(String groupId) {
+                events.add("+" + groupId + ":" + registry[0].getMembers().contains(groupId));
+                if (groupId.equals("1")) {
+                    registry[0].setGroup(bob, "1");
+                    registry[0].setGroup(bob, "2");
+                }
+            }
+
+            @Override
+            public void deactivated(String groupId) {
+                events.add("-" + groupId + ":" + registry[0].getMembers().contains(groupId));
+            }
+        });
+        Player alice = player();
+        registry[0].load(alice.getUniqueId(), null);
+        registry[0].load(bob.getUniqueId(), null);
+
+        assertNull(registry[0].setGroup(alice, "1"));
+
+        assertEquals(List.of("+1:true", "+2:true"), events);
+        assertEquals("2", registry[0].getGroup(bob.getUniqueId()));
+        assertEquals(2, registry[0].getMembers().getGroups().size());
+    }
+
+    @Test
+    void notificationsKeepOrderAcrossThreads() throws InterruptedException {
+        // 複数のスレッドが同じグループに参加・退出を繰り返しても、通知は交互に届き、最後の状態と一致する
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger violations = new AtomicInteger();
+        GroupMembers members = new GroupMembers(new GroupMembers.Listener() {
+            @Override
+            public void activated(String groupId) {
+                if (active.incrementAndGet() != 1) {
+                    violations.incrementAndGet();
+                }
+            }
+
+            @Override
+            public void deactivated(String groupId) {
+                if (active.decrementAndGet() != 0) {
+                    violations.incrementAndGet();
+                }
+            }
+        });
+
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Player player = player();
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < 20_000; i++) {
+                        members.add("g", player);
+                        members.remove("g", player.getUniqueId());
+                    }
+                    if (player.getUniqueId().hashCode() % 2 == 0) {
+                        members.add("g", player);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+
+        assertEquals(0, violations.get());
+        assertEquals(members.contains("g") ? 1 : 0, active.get());
+    }
+
+    @Test
+    void listenerFailureDoesNotStopLaterNotifications() {
+        List<String> events = new ArrayList<>();
+        GroupMembers members = new GroupMembers(new GroupMembers.Listener() {
+            @Override
+            public void activated(String groupId) {
+                events.add("+" + groupId);
+                throw new IllegalStateException("subscribe failed");
+            }
+
+            @Override
+            public void deactivated(String groupId) {
+                events.add("-" + groupId);
+            }
+        });
+        Player alice = player();
+
+        try {
+            members.add("1", alice);
+        } catch (IllegalStateException expected) {
+            // 通知の例外は呼び出し元に伝わる
+        }
+        assertFalse(members.remove("1", UUID.randomUUID()));
+        assertTrue(members.remove("1", alice.getUniqueId()));
+
+        assertEquals(List.of("+1", "-1"), events);
+    }
+
+    private static GroupMembers.Listener recording(List<String> events) {
+        return new GroupMembers.Listener() {
+            @Override
+            public void activated(String groupId) {
+                events.add("+" + groupId);
+            }
+
+            @Override
+            public void deactivated(String groupId) {
+                events.add("-" + groupId);
+            }
+        };
+    }
+
+    private static Player player() {
+        UUID uuid = UUID.randomUUID();
+        return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[]{Player.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getUniqueId":
+                            return uuid;
+                        case "hashCode":
+                            return uuid.hashCode();
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "Player[" + uuid + "]";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
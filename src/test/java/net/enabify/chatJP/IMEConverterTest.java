@@ -0,0 +1,236 @@
+package net.enabify.chatJP;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * IMEConverterの通信先の組み立てと、スタブサーバーとの通信のテスト
+ * IMEBatcherで要求をまとめた場合の、応答の分割と個別の変換への切り替えも確認します。
+ */
+class IMEConverterTest {
+
+    private HttpServer server;
+    private volatile String receivedQuery;
+    private volatile boolean mergeLastTwo;
+    private final List<String> receivedTexts = Collections.synchronizedList(new ArrayList<>());
+    private ExecutorService serverExecutor;
+    private ExecutorService executor;
+    private IMEBatcher batcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // カンマで区切られた文章ごとに、変換した結果を返すスタブサーバー
+        // （GoogleIMEと同じく、区切り文字も1つの文節として返す）
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/transliterate", exchange -> {
+            receivedQuery = exchange.getRequestURI().getRawQuery();
+            String query = exchange.getRequestURI().getQuery();
+            String text = query.substring(query.indexOf("text=") + 5);
+            receivedTexts.add(text);
+
+            List<String> parts = new ArrayList<>(List.of(text.split(",", -1)));
+            if (mergeLastTwo && parts.size() >= 2) {
+                // 最後の2つの文章を1つの文節にまとめて返し、文章との対応を取れなくする
+                String last = parts.remove(parts.size() - 1);
+                parts.set(parts.size() - 1, parts.get(parts.size() - 1) + "," + last);
+            }
+            StringBuilder json = new StringBuilder("[");
+            for (int i = 0; i < parts.size(); i++) {
+                if (i > 0) {
+                    json.append(",[\",\",[\",\"]],");
+                }
+                appendSegments(json, parts.get(i));
+            }
+            byte[] body = json.append("]").toString().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        serverExecutor = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverExecutor);
+        server.start();
+        IMEConverter.configureCache(0, 0L);
+
+        // 本来の接続先のパスとクエリはそのまま使い、ホストだけをスタブサーバーに差し替える
+        URI google = URI.create(IMEConverter.GOOGLE_IME_URL);
+        IMEConverter.setGoogleIMEUrl("http://127.0.0.1:" + server.getAddress().getPort()
+                + google.getRawPath() + "?" + google.getRawQuery());
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (batcher != null) {
+            batcher.shutdown();
+        }
+        executor.shutdownNow();
+        IMEConverter.setGoogleIMEUrl(null);
+        IMEConverter.configureCache(1000, 60L * 60L * 1000L);
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void googleIMEUrlIsValidURI() {
+        URI uri = IMEConverter.requestURI(IMEConverter.GOOGLE_IME_URL, "きょうは、いいてんき");
+
+        assertEquals("https", uri.getScheme());
+        assertEquals("www.google.com", uri.getHost());
+        assertEquals("langpair=ja-Hira|ja&text=きょうは、いいてんき", uri.getQuery());
+    }
+
+    @Test
+    void convertsThroughStubServer() {
+        assertEquals(converted("こんにちは"), IMEConverter.convByGoogleIME("こんにちは"));
+
+        assertNotNull(receivedQuery);
+        assertEquals("ja-Hira|ja", URLDecoder.decode(
+                receivedQuery.substring(receivedQuery.indexOf("langpair=") + 9, receivedQuery.indexOf('&')),
+                StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void coalescesConcurrentRequestsIntoOneBatch() throws Exception {
+        batcher = new IMEBatcher(executor, 500L, 16);
+        String[] readings = {"きょう", "あした", "あさって", "きょう", "あした", "きょう", "い", "きょう"};
+
+        List<CompletableFuture<String>> futures = submitConcurrently(readings);
+
+        for (int i = 0; i < readings.length; i++) {
+            assertEquals(converted(readings[i]), futures.get(i).get(5, TimeUnit.SECONDS), readings[i]);
+        }
+        // 同じ文字列の要求は1つのFutureを共有し、異なる文字列は1回の通信にまとめられる
+        assertSame(futures.get(0), futures.get(3));
+        assertSame(futures.get(1), futures.get(4));
+        assertEquals(1, receivedTexts.size(), receivedTexts.toString());
+        assertEquals(4, receivedTexts.get(0).split(",").length, receivedTexts.get(0));
+    }
+
+    @Test
+    void splitsBatchesByMaxSize() throws Exception {
+        batcher = new IMEBatcher(executor, 500L, 2);
+        String[] readings = {"あ", "い", "う", "え", "お"};
+
+        List<CompletableFuture<String>> futures = submitConcurrently(readings);
+
+        for (int i = 0; i < readings.length; i++) {
+            assertEquals(converted(readings[i]), futures.get(i).get(5, TimeUnit.SECONDS), readings[i]);
+        }
+        // 2件、2件、残りの1件の3回
+        assertEquals(3, receivedTexts.size(), receivedTexts.toString());
+    }
+
+    @Test
+    void sendsReadingsWithCommaAlone() throws Exception {
+        batcher = new IMEBatcher(executor, 500L, 16);
+
+        CompletableFuture<String> comma = batcher.submit("はい,いいえ");
+        CompletableFuture<String> plain = batcher.submit("はい");
+        batcher.flush();
+
+        assertEquals(converted("はい") + "," + converted("いいえ"), comma.get(5, TimeUnit.SECONDS));
+        assertEquals(converted("はい"), plain.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("はい", "はい,いいえ"), sorted(receivedTexts));
+    }
+
+    @Test
+    void fallsBackToSingleRequestsWhenSegmentsDoNotLineUp() {
+        mergeLastTwo = true;
+
+        List<String> results = IMEConverter.convBatchByGoogleIME(List.of("きょう", "あした", "あさって"));
+
+        // 対応が取れた最初の文章は1回目の通信の結果を使い、残りは個別に変換し直す
+        assertEquals(List.of(converted("きょう"), converted("あした"), converted("あさって")), results);
+        assertEquals(List.of("あさって", "あした", "きょう,あした,あさって"), sorted(receivedTexts));
+    }
+
+    @Test
+    void fallsBackForEveryReadingWhenFirstSegmentDoesNotLineUp() throws Exception {
+        mergeLastTwo = true;
+        batcher = new IMEBatcher(executor, 500L, 16);
+
+        List<CompletableFuture<String>> futures = submitConcurrently(new String[]{"はい", "いいえ"});
+
+        assertEquals(converted("はい"), futures.get(0).get(5, TimeUnit.SECONDS));
+        assertEquals(converted("いいえ"), futures.get(1).get(5, TimeUnit.SECONDS));
+        assertEquals(3, receivedTexts.size(), receivedTexts.toString());
+    }
+
+    // 複数のスレッドから同時に変換を要求し、待ち時間を待たずに送信する
+    private List<CompletableFuture<String>> submitConcurrently(String[] readings) throws InterruptedException {
+        List<CompletableFuture<String>> futures = new ArrayList<>(Collections.nCopies(readings.length, null));
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(readings.length);
+        for (int i = 0; i < readings.length; i++) {
+            int index = i;
+            new Thread(() -> {
+                try {
+                    start.await();
+                    CompletableFuture<String> future = batcher.submit(readings[index]);
+                    synchronized (futures) {
+                        futures.set(index, future);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+        batcher.flush();
+        synchronized (futures) {
+            return new ArrayList<>(futures);
+        }
+    }
+
+    // スタブサーバーの変換結果（2文字以上の文章は、1文字目とそれ以降の2つの文節に分ける）
+    private static String converted(String reading) {
+        if (reading.length() < 2) {
+            return "<" + reading + ">";
+        }
+        return "<" + reading.substring(0, 1) + "><" + reading.substring(1) + ">";
+    }
+
+    private static void appendSegments(StringBuilder json, String reading) {
+        if (reading.length() < 2 || reading.contains(",")) {
+            json.append("[\"").append(reading).append("\",[\"<").append(reading).append(">\"]]");
+            return;
+        }
+        json.append("[\"").append(reading, 0, 1).append("\",[\"<").append(reading, 0, 1).append(">\"]],");
+        json.append("[\"").append(reading.substring(1)).append("\",[\"<").append(reading.substring(1)).append(">\"]]");
+    }
+
+    private static List<String> sorted(List<String> texts) {
+        List<String> copy;
+        synchronized (texts) {
+            copy = new ArrayList<>(texts);
+        }
+        Collections.sort(copy);
+        return copy;
+    }
+}
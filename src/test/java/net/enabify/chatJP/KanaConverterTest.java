@@ -0,0 +1,93 @@
+package net.enabify.chatJP;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * KanaConverterのテスト
+ * 表を使う実装に書き換えたので、書き換える前の実装（LegacyKanaConverter）と結果を比較します。
+ */
+class KanaConverterTest {
+
+    // ローマ字と、変換結果（書き換える前の実装と同じもの）
+    private static final String[][] GOLDEN = {
+            {"kyou", "きょう"},
+            {"ryokou", "りょこう"},
+            {"gakkou ni ikimasu!", "がっこう に いきます！"},
+            {"nya", "にゃ"},
+            {"annyo", "あんよ"},
+            // nは次の文字が母音かyでなければ「ん」になり、nnは「ん」1文字になる
+            {"n", "n"},
+            {"nn", "ん"},
+            {"sonna", "そんあ"},
+            {"onnna", "おんな"},
+            {"konnichiha", "こんいちは"},
+            // n'の'はそのまま残る
+            {"kan'i", "かん'い"},
+            {"shin'you", "しん'よう"},
+            // 同じ子音が続くと「っ」になる
+            {"kitte", "きって"},
+            {"tte", "って"},
+            {"zasshi", "ざっし"},
+            {"wwwww", "っっっっw"},
+            {"matcha", "まtchあ"},
+            {"ltu", "っ"},
+            // 大文字は未確定の子音と一緒にそのまま出力する
+            {"HELLO", "HELLO"},
+            {"Minecraft", "Mいねcrあft"},
+            {"tOkyo", "tOきょ"},
+            // 記号
+            {"kya-", "きゃー"},
+            {"hai.", "はい。"},
+            {"e?", "え？"},
+            {"[kagi]", "「かぎ」"},
+            {"(kakko)", "かっこ"},
+            {"a&b\"c", "あ＆b”c"},
+            {"1000en", "1000えn"},
+            {"x", "x"},
+            {"", ""},
+    };
+
+    // ランダムな入力に使う文字（子音の組み合わせが多く出るよう、英小文字を多めにする）
+    private static final String ALPHABET =
+            "abcdefghijklmnopqrstuvwxyzabcdefghijklmnopqrstuvwxyzaiueonnyhs"
+            + "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 -.,?![]<>&\"()'@#~あ漢ａ";
+
+    @Test
+    void goldenPairs() {
+        for (String[] pair : GOLDEN) {
+            assertEquals(pair[1], KanaConverter.conv(pair[0]), pair[0]);
+            assertEquals(pair[1], LegacyKanaConverter.conv(pair[0]), pair[0]);
+        }
+    }
+
+    @Test
+    void matchesLegacyConverterOnRandomInput() {
+        Random random = new Random(20131001L);
+        StringBuilder input = new StringBuilder();
+        for (int n = 0; n < 200_000; n++) {
+            input.setLength(0);
+            int length = random.nextInt(24);
+            for (int i = 0; i < length; i++) {
+                if (random.nextInt(200) == 0) {
+                    // サロゲートペア（絵文字）
+                    input.appendCodePoint(0x1F600 + random.nextInt(64));
+                } else {
+                    input.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+                }
+            }
+            String org = input.toString();
+            assertEquals(LegacyKanaConverter.conv(org), KanaConverter.conv(org), org);
+        }
+    }
+
+    @Test
+    void appendsToExistingBuffer() {
+        StringBuilder line = new StringBuilder("> ");
+        KanaConverter.conv("konnnichiha", line);
+        assertEquals("> こんにちは", line.toString());
+    }
+}
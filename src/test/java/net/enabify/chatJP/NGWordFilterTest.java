@@ -0,0 +1,109 @@
+package net.enabify.chatJP;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * NGWordFilterのテスト
+ * 初期設定のルールでは、以前のmaskNGWord（ルールごとのreplaceAll）と同じ結果になることを確認します。
+ */
+class NGWordFilterTest {
+
+    // ChatJPの初期設定と同じルール
+    private static final List<String> DEFAULT_RULES = Arrays.asList(
+            "<@!*&*[0-9]+>",
+            "@here",
+            "@everyone",
+            "@",
+            "discord\\.gg",
+            "discord\\.com/invite",
+            "https?:\\/\\/[^\\s]+");
+
+    // ランダムなメッセージを組み立てる部品
+    private static final String[] TOKENS = {
+            "hello", "konnnichiha", "こんにちは", " ", " ", "  ", "a", "1", ">", "<", "!", "&", ":", "/",
+            "@", "@here", "@HERE", "@everyone", "@Everyone", "<@123>", "<@!456>", "<@&789>", "<@>", "<@12",
+            "discord.gg", "DISCORD.GG/abc", "discord.com/invite", "Discord.Com/Invite/xyz", "discordagg",
+            "https://example.com", "http://a.b/c?d=e", "HTTPS://X", "https:/", "http", "://",
+    };
+
+    @Test
+    void matchesLegacyMaskOnRandomMessages() {
+        NGWordFilter filter = new NGWordFilter(DEFAULT_RULES, null);
+        Random random = new Random(300_000L);
+        StringBuilder message = new StringBuilder();
+        for (int n = 0; n < 300_000; n++) {
+            message.setLength(0);
+            int tokens = 1 + random.nextInt(8);
+            for (int i = 0; i < tokens; i++) {
+                message.append(TOKENS[random.nextInt(TOKENS.length)]);
+            }
+            String text = message.toString();
+            assertEquals(legacyMask(text, DEFAULT_RULES), filter.mask(text), text);
+        }
+    }
+
+    @Test
+    void masksDefaultRules() {
+        NGWordFilter filter = new NGWordFilter(DEFAULT_RULES, null);
+
+        assertEquals("招待 ****/abc", filter.mask("招待 discord.gg/abc"));
+        assertEquals("**** こんにちは", filter.mask("<@!123> こんにちは"));
+        assertEquals("見て **** これ", filter.mask("見て https://example.com これ"));
+        assertEquals("こんにちは", filter.mask("こんにちは"));
+    }
+
+    @Test
+    void backreferenceRuleMatchesItsOwnGroup() {
+        // 同じ文字の4回以上の繰り返しを伏字にするルールを、他の正規表現のルールの後に置く
+        NGWordFilter filter = new NGWordFilter(Arrays.asList("(ab)+c", "(.)\\1{3,}"), null);
+
+        assertEquals("w****w", filter.mask("wzzzzzw"));
+        assertEquals("****", filter.mask("ababc"));
+        assertEquals("abxd", filter.mask("abxd"));
+        assertEquals(1, filter.getHitCount(1));
+        assertEquals(1, filter.getHitCount(0));
+    }
+
+    @Test
+    void namedGroupsInSeveralRules() {
+        NGWordFilter filter = new NGWordFilter(Arrays.asList(
+                "(?<c>[a-z])\\k<c>{2}", "(?<c>[0-9])-\\k<c>", "x+y"), null);
+
+        assertEquals(3, filter.getRules().size());
+        assertEquals("a**** ****b ****", filter.mask("aqqq 7-7b xxy"));
+    }
+
+    @Test
+    void detectsGroupReferences() {
+        assertTrue(NGWordFilter.usesGroupReferences("(.)\\1"));
+        assertTrue(NGWordFilter.usesGroupReferences("(?<name>a)\\k<name>"));
+        assertTrue(NGWordFilter.usesGroupReferences("(?<name>a)b"));
+        assertFalse(NGWordFilter.usesGroupReferences("(?<=a)b(?<!c)"));
+        assertFalse(NGWordFilter.usesGroupReferences("\\\\1"));
+        assertFalse(NGWordFilter.usesGroupReferences("\\Q\\1\\E"));
+        assertFalse(NGWordFilter.usesGroupReferences("https?:\\/\\/[^\\s]+"));
+    }
+
+    @Test
+    void emptyRulesReturnMessage() {
+        NGWordFilter filter = new NGWordFilter(Collections.emptyList(), null);
+        assertEquals("@everyone", filter.mask("@everyone"));
+    }
+
+    // 以前のChatJP.maskNGWordと同じ処理
+    private static String legacyMask(String message, List<String> rules) {
+        for (String rule : rules) {
+            message = message.replaceAll("(?i)" + rule, "****");
+        }
+        return message;
+    }
+}
@@ -0,0 +1,108 @@
+package net.enabify.chatJP;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ShortcodeExpanderの設定の読み込みのテスト
+ */
+class ShortcodeExpanderTest {
+
+    @Test
+    void expandsConfiguredCodes() {
+        Map<String, List<?>> codes = new LinkedHashMap<>();
+        codes.put("52", List.of("こんにちは"));
+        codes.put("08", List.of(Map.of("text", "おはよう", "weight", 3)));
+
+        ShortcodeExpander expander = ShortcodeExpander.load(section(codes), logger(new ArrayList<>()));
+
+        assertEquals(2, expander.size());
+        assertEquals("こんにちは", expander.expand(" 52 "));
+        assertEquals("おはよう", expander.expand("08"));
+        assertNull(expander.expand("99"));
+    }
+
+    @Test
+    void rejectsInvalidWeights() {
+        Map<String, List<?>> codes = new LinkedHashMap<>();
+        codes.put("1", List.of(
+                Map.of("text", "a", "weight", 0),
+                Map.of("text", "b", "weight", -5),
+                Map.of("text", "c", "weight", 1.5),
+                Map.of("text", "d", "weight", "many"),
+                Map.of("text", "e", "weight", Long.MAX_VALUE),
+                Map.of("text", "f", "weight", 2)));
+        List<String> warnings = new ArrayList<>();
+
+        ShortcodeExpander expander = ShortcodeExpander.load(section(codes), logger(warnings));
+
+        assertEquals(5, warnings.size());
+        assertEquals("f", expander.expand("1"));
+    }
+
+    @Test
+    void stopsBeforeTotalWeightOverflows() {
+        // 重みの合計がintに収まらなくなる前の文章までを使う
+        List<Object> variants = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            variants.add(Map.of("text", "t" + i, "weight", ShortcodeExpander.MAX_WEIGHT));
+        }
+        Map<String, List<?>> codes = Map.of("x", variants);
+        List<String> warnings = new ArrayList<>();
+
+        ShortcodeExpander expander = ShortcodeExpander.load(section(codes), logger(warnings));
+
+        assertEquals(1, warnings.size());
+        for (int n = 0; n < 1000; n++) {
+            int index = Integer.parseInt(expander.expand("x").substring(1));
+            assertTrue(index < Integer.MAX_VALUE / ShortcodeExpander.MAX_WEIGHT + 1, "t" + index);
+        }
+    }
+
+    private static ConfigurationSection section(Map<String, List<?>> codes) {
+        return (ConfigurationSection) Proxy.newProxyInstance(ConfigurationSection.class.getClassLoader(),
+                new Class<?>[]{ConfigurationSection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getKeys":
+                            return codes.keySet();
+                        case "getList":
+                            return codes.get((String) args[0]);
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static Logger logger(List<String> warnings) {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                warnings.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        return logger;
+    }
+}